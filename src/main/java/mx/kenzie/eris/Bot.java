@@ -5,6 +5,8 @@ import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.api.Lazy;
 import mx.kenzie.eris.api.Listener;
 import mx.kenzie.eris.api.command.CommandHandler;
+import mx.kenzie.eris.api.command.CommandRouter;
+import mx.kenzie.eris.api.command.ComponentRouter;
 import mx.kenzie.eris.api.entity.Entity;
 import mx.kenzie.eris.api.entity.Self;
 import mx.kenzie.eris.api.entity.command.Command;
@@ -33,6 +35,7 @@ import mx.kenzie.eris.api.event.stage.UpdateStage;
 import mx.kenzie.eris.api.event.thread.*;
 import mx.kenzie.eris.api.event.vote.AddMessagePollVote;
 import mx.kenzie.eris.api.event.vote.RemoveMessagePollVote;
+import mx.kenzie.eris.api.magic.InteractionType;
 import mx.kenzie.eris.data.Payload;
 import mx.kenzie.eris.data.incoming.Incoming;
 import mx.kenzie.eris.data.incoming.gateway.*;
@@ -41,14 +44,23 @@ import mx.kenzie.eris.data.outgoing.Outgoing;
 import mx.kenzie.eris.data.outgoing.gateway.Heartbeat;
 import mx.kenzie.eris.data.outgoing.gateway.Identify;
 import mx.kenzie.eris.data.outgoing.gateway.Resume;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.network.DirectChannelStore;
+import mx.kenzie.eris.network.InteractionServer;
+import mx.kenzie.eris.network.MemberCache;
+import mx.kenzie.eris.network.MessageCoalescer;
 import mx.kenzie.eris.network.NetworkController;
+import mx.kenzie.eris.network.PermissionCache;
+import mx.kenzie.eris.network.SessionStore;
 import mx.kenzie.eris.utility.CommandRegister;
 import mx.kenzie.eris.utility.ResponseManager;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.http.WebSocket;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -146,6 +158,8 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
     public final ExecutorService executor = Executors.newCachedThreadPool();
     protected final Map<Listener<?>, Class<? extends Event>> listeners = new HashMap<>();
     protected final Map<Command, CommandHandler> commands = new HashMap<>();
+    protected final CommandRouter router = new CommandRouter();
+    protected final ComponentRouter components = new ComponentRouter();
     protected final DiscordAPI api;
     protected final ResponseManager responder;
     protected String token, secret;
@@ -154,8 +168,12 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
     protected NetworkController network;
     protected int intents;
+    protected volatile long autoDefer;
+    protected volatile boolean autoDeferEphemeral;
+    protected volatile MessageCoalescer coalescer;
     protected volatile Self self;
-    protected volatile String session;
+    protected volatile String session, resumeURL;
+    protected SessionStore sessions;
     protected transient WebSocket socket;
     protected boolean heartbeatReceived;
     private boolean running = true;
@@ -189,6 +207,26 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
         return session;
     }
 
+    /**
+     * Keeps the gateway session in the given file, so that a restarted bot can resume it
+     * instead of identifying again. This should be called before the bot is started.
+     */
+    public void useSessionStore(File file) {
+        this.sessions = new SessionStore(file.toPath());
+    }
+
+    /**
+     * Keeps the DM channel of each user the bot has messaged in the given file,
+     * so they do not have to be opened again after a restart.
+     */
+    public void useDirectChannelStore(File file) {
+        final DirectChannelStore store = new DirectChannelStore(file.toPath());
+        store.load();
+        this.api.directChannels = store;
+        this.scheduler.scheduleWithFixedDelay(store::flush, DirectChannelStore.INTERVAL, DirectChannelStore.INTERVAL,
+            TimeUnit.MILLISECONDS);
+    }
+
     public Listener<?>[] getListeners(Class<? extends Event> type) {
         final List<Listener<?>> list = new ArrayList<>();
         for (final Map.Entry<Listener<?>, Class<? extends Event>> entry : listeners.entrySet()) {
@@ -216,9 +254,92 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
         final String id = (guild == null) ? null : api.getGuildId(guild);
         command.guild_id = id;
         this.commands.put(command, handler);
+        this.router.register(command, handler);
         return this.api.registerCommand(command, id);
     }
 
+    /**
+     * Gives a subcommand (or subcommand group) of a registered command its own handler,
+     * e.g. {@code "settings reset"} for the {@code reset} subcommand in the {@code settings} group.
+     */
+    public void registerSubcommand(Command command, String path, CommandHandler handler) {
+        this.router.register(command, path, handler);
+    }
+
+    /**
+     * Defers any handled interaction that has not been responded to within this many milliseconds
+     * (Discord allows three seconds), so slow handlers do not make it fail. Zero turns this off.
+     * Replies made after that edit the deferred response, see {@link Interaction#defer(boolean)}.
+     * Interactions that nothing handles are left alone.
+     */
+    public void setAutoDefer(long milliseconds) {
+        this.setAutoDefer(milliseconds, false);
+    }
+
+    /**
+     * @param ephemeral whether the deferred response is only shown to the user,
+     *                  for handlers that mostly reply privately
+     */
+    public void setAutoDefer(long milliseconds, boolean ephemeral) {
+        this.autoDeferEphemeral = ephemeral;
+        this.autoDefer = milliseconds;
+    }
+
+    /**
+     * Merges small messages sent to the same channel with {@code Channel#send} within this many milliseconds,
+     * see {@link MessageCoalescer}. Zero turns this off, sending whatever is waiting.
+     */
+    public void setMessageCoalescing(long milliseconds) {
+        final MessageCoalescer previous = coalescer;
+        this.coalescer = milliseconds > 0 ? new MessageCoalescer(this, milliseconds) : null;
+        if (previous != null) previous.flush();
+    }
+
+    public MessageCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    public CommandRouter getCommandRouter() {
+        return router;
+    }
+
+    public ComponentRouter getComponentRouter() {
+        return components;
+    }
+
+    /**
+     * Passes an interaction to the waiting questions, components and commands, in that order.
+     * This is run for interactions from the gateway and from an {@link InteractionServer}.
+     */
+    public void interact(Interaction interaction) throws Throwable {
+        final Runnable claimed = () -> this.autoDefer(interaction);
+        if (responder.consume(interaction, claimed)) return;
+        if (components.dispatch(interaction, claimed)) return;
+        if (interaction.type == InteractionType.APPLICATION_COMMAND_AUTOCOMPLETE && router.complete(interaction))
+            return;
+        this.router.dispatch(interaction, claimed);
+    }
+
+    private void autoDefer(Interaction interaction) {
+        final long delay = autoDefer;
+        if (delay < 1 || interaction.type == InteractionType.PING
+            || interaction.type == InteractionType.APPLICATION_COMMAND_AUTOCOMPLETE) return;
+        final boolean ephemeral = autoDeferEphemeral;
+        this.scheduler.schedule(() -> interaction.defer(ephemeral), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a server that receives interactions over HTTP, instead of (or as well as) the gateway.
+     * Discord must be given this server's address as the application's interactions endpoint.
+     *
+     * @param publicKey the application's public key, in hex
+     */
+    public InteractionServer serveInteractions(InetSocketAddress address, String path, String publicKey) throws IOException {
+        final InteractionServer server = new InteractionServer(this, publicKey);
+        server.start(address, path);
+        return server;
+    }
+
     public Listener<?>[] getPayloadListeners(Class<? extends Incoming> type) {
         return this.network.getListeners(type);
     }
@@ -226,10 +347,16 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
     @Override
     public void close() {
         for (final Command command : commands.keySet()) this.api.deleteCommand(command);
+        if (coalescer != null) this.coalescer.flush();
         synchronized (this) {
             this.running = false;
         }
-        this.network.close();
+        if (sessions != null) {
+            this.sessions.flush();
+            this.network.close(4000, "Closing to resume later."); // a normal closure would end the session
+        } else this.network.close();
+        if (api.getSnapshot() != null) this.api.getSnapshot().close();
+        this.api.getDirectChannels().flush();
         this.process.cancel(true);
         this.executor.shutdown();
         try {
@@ -268,7 +395,10 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
     public void run() {
         try {
             this.registerPayloadListener(HeartbeatReceived.class, beat -> this.heartbeatReceived = true);
-            this.registerPayloadListener(Incoming.class, incoming -> incoming.network.notify(incoming.sequence));
+            this.registerPayloadListener(Incoming.class, incoming -> {
+                incoming.network.notify(incoming.sequence);
+                if (sessions != null) this.sessions.update(this.getSequence());
+            });
             this.registerPayloadListener(Dispatch.class, dispatch -> {
                 final Json.JsonHelper helper = dispatch.network.helper;
                 this.debug("Preparing " + dispatch.key);
@@ -276,16 +406,48 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
                 final Event event = helper.createObject(type);
                 if (event instanceof Entity entity) entity.api = this.api;
                 helper.mapToObject(event, type, dispatch.data);
+                this.api.getMessageCache().update(event);
                 this.triggerEvent(event);
             });
             this.registerListener(Debug.class, debug -> System.out.println(debug.message));
+            this.registerListener(IdentifyGuildMembers.class, api::receiveMembers);
+            final MemberCache members = api.getMemberCache();
+            this.registerListener(IdentifyGuild.class, guild -> {
+                members.store(guild.id, guild.members);
+                if (guild.members != null && guild.members.length >= guild.member_count) members.reconcile(guild.id);
+            });
+            this.registerListener(DeleteGuild.class, guild -> members.removeGuild(guild.id));
+            this.registerListener(AddGuildMember.class, member -> members.store(member.guild_id, member));
+            this.registerListener(UpdateGuildMember.class, member -> members.store(member.guild_id, member));
+            this.registerListener(RemoveGuildMember.class, member -> members.remove(member.guild_id, member.user));
+            this.registerListener(IdentifyGuildMembers.class, chunk -> members.store(chunk.guild_id, chunk.members));
+            final PermissionCache permissions = api.getPermissionCache();
+            this.registerListener(IdentifyGuild.class, guild -> {
+                permissions.storeGuild(guild);
+                permissions.storeChannels(guild.id, guild.channels);
+                permissions.storeChannels(guild.id, guild.threads);
+            });
+            this.registerListener(UpdateGuild.class, permissions::storeGuild);
+            this.registerListener(DeleteGuild.class, guild -> permissions.removeGuild(guild.id));
+            this.registerListener(CreateGuildRole.class, event -> permissions.storeRole(event.guild_id, event.role));
+            this.registerListener(UpdateGuildRole.class, event -> permissions.storeRole(event.guild_id, event.role));
+            this.registerListener(DeleteGuildRole.class, event -> permissions.removeRole(event.guild_id, event.role_id));
+            this.registerListener(CreateChannel.class, channel -> permissions.storeChannels(channel.guild_id, channel));
+            this.registerListener(UpdateChannel.class, channel -> permissions.storeChannels(channel.guild_id, channel));
+            this.registerListener(DeleteChannel.class, channel -> permissions.removeChannel(channel.guild_id, channel.id));
+            this.registerListener(CreateThread.class, thread -> permissions.storeChannels(thread.guild_id, thread));
+            this.registerListener(UpdateThread.class, thread -> permissions.storeChannels(thread.guild_id, thread));
+            this.registerListener(DeleteThread.class, thread -> permissions.removeChannel(thread.guild_id, thread.id));
             this.registerListener(SocketClose.class, close -> {
                 this.debug("Received close event (" + close.code + ")");
+                this.api.getMessageCache().suspend();
+                this.api.cancelMemberRequests(new DiscordException("Socket closed (" + close.code + ")"));
                 if (close.code >= 1000 && close.code < 2000) {
                     if (heartbeat != null) heartbeat.cancel(true);
                     this.heartbeat = null;
                     this.network.sequence.set(0);
                     this.shouldResume = false; // Don't resume for RFC spec. closing codes
+                    if (sessions != null) this.sessions.clear();
                 }
                 this.debug("Attempting reconnect sequence.");
                 if (close.getReason() == SocketClose.Reason.INVALID_SEQUENCE) {
@@ -293,6 +455,7 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
                     this.heartbeat = null;
                     this.network.sequence.set(0);
                     this.shouldResume = false;
+                    if (sessions != null) this.sessions.clear();
                     this.connect(true);
                 } else if (close.shouldReconnect()) this.connect(true);
             });
@@ -308,48 +471,53 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
                 this.heartbeat = null;
                 this.shouldResume = false;
                 this.network.sequence.set(0);
+                if (sessions != null) this.sessions.clear();
 //                this.connect(true); // connect moved to socket close
             });
             this.registerPayloadListener(Hello.class, hello -> {
                 if (shouldResume) {
+                    if (heartbeat == null) this.beat(hello.data.heartbeat_interval); // resuming a stored session
                     this.resume();
                     return;
                 }
                 final Identify identify = new Identify();
                 identify.data.intents = this.intents;
                 identify.data.token = this.token;
-                final int delay = hello.data.heartbeat_interval;
                 this.dispatch(identify);
-                if (heartbeat != null) heartbeat.cancel(true);
-                this.heartbeat = scheduler.scheduleWithFixedDelay(() -> {
-                    final Heartbeat heartbeat = new Heartbeat();
-                    final int sequence = this.network.sequence.getAcquire();
-                    heartbeat.data = sequence < 1 ? null : sequence;
-                    if (heartbeatReceived) {
-                        this.dispatch(heartbeat);
-                        this.heartbeatReceived = false;
-                    } else this.connect(true);
-                }, (long) (delay * ThreadLocalRandom.current().nextDouble(0, 1)), delay, TimeUnit.MILLISECONDS);
+                this.beat(hello.data.heartbeat_interval);
                 this.shouldResume = true;
             });
             this.registerListener(Ready.class, ready -> {
                 synchronized (this) {
                     this.self = ready.user;
                     this.session = ready.session_id;
+                    this.resumeURL = ready.resume_gateway_url;
                 }
+                if (sessions != null) this.sessions.update(ready.session_id, ready.resume_gateway_url);
                 if (heartbeat == null) throw new Error("No heartbeat monitor set up.");
                 this.finish();
             });
-            this.registerListener(Interaction.class, interaction -> {
-                if (responder.consume(interaction)) return;
-                for (final Map.Entry<Command, CommandHandler> entry : this.commands.entrySet()) {
-                    final Command command = entry.getKey();
-                    if (interaction.data.type != null && interaction.data.type != command.type) continue;
-                    if (!command.name.equals(interaction.data.name)) continue;
-                    if (command.guild_id == null || command.guild_id.equals(interaction.guild_id))
-                        entry.getValue().on(interaction);
+            this.registerListener(Resumed.class, resumed -> {
+                if (self != null) return;
+                final Self self = new Self(); // a stored session was resumed, so there was no ready event
+                this.api.update(self);
+                self.await();
+                synchronized (this) {
+                    this.self = self;
                 }
+                this.finish();
             });
+            this.registerListener(Interaction.class, this::interact);
+            if (sessions != null) {
+                if (sessions.load()) synchronized (this) {
+                    this.session = sessions.getSession();
+                    this.resumeURL = sessions.getResumeURL();
+                    this.network.sequence.set(sessions.getSequence());
+                    this.shouldResume = true;
+                }
+                this.scheduler.scheduleWithFixedDelay(sessions::flush, SessionStore.INTERVAL, SessionStore.INTERVAL,
+                    TimeUnit.MILLISECONDS);
+            }
             this.connect(false);
             this.scheduler.schedule(this.api::cleanCache, 90, TimeUnit.SECONDS);
         } catch (Throwable ex) {
@@ -392,8 +560,22 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
         this.openSocket();
     }
 
+    private void beat(int delay) {
+        if (heartbeat != null) heartbeat.cancel(true);
+        this.heartbeat = scheduler.scheduleWithFixedDelay(() -> {
+            final Heartbeat heartbeat = new Heartbeat();
+            final int sequence = this.network.sequence.getAcquire();
+            heartbeat.data = sequence < 1 ? null : sequence;
+            if (heartbeatReceived) {
+                this.dispatch(heartbeat);
+                this.heartbeatReceived = false;
+            } else this.connect(true);
+        }, (long) (delay * ThreadLocalRandom.current().nextDouble(0, 1)), delay, TimeUnit.MILLISECONDS);
+    }
+
     public void resume() {
         final Resume resume = new Resume();
+        resume.data.token = token;
         resume.data.session_id = session;
         resume.data.sequence = this.getSequence();
         this.dispatch(resume);
@@ -404,6 +586,10 @@ public class Bot extends Lazy implements Runnable, AutoCloseable {
     }
 
     private void openSocket() {
+        if (shouldResume && resumeURL != null) {
+            this.socket = network.openSocket(resumeURL + "/?v=10&encoding=json");
+            return;
+        }
         try (final Json json = new Json(network.request("GET", "/gateway/bot", null, headers).body())) {
             this.debug("Requested socket URL.");
             final GatewayConnection connection = json.toObject(new GatewayConnection());
@@ -14,23 +14,43 @@ import mx.kenzie.eris.api.entity.guild.*;
 import mx.kenzie.eris.api.entity.message.Attachment;
 import mx.kenzie.eris.api.entity.message.UnsentMessage;
 import mx.kenzie.eris.api.entity.voice.VoiceRegion;
+import mx.kenzie.eris.api.magic.Intents;
 import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.event.guild.member.IdentifyGuildMembers;
+import mx.kenzie.eris.api.utility.Broadcast;
 import mx.kenzie.eris.api.utility.LazyList;
+import mx.kenzie.eris.api.utility.MemberRequest;
 import mx.kenzie.eris.api.utility.MultiBody;
 import mx.kenzie.eris.data.Payload;
 import mx.kenzie.eris.data.outgoing.Outgoing;
+import mx.kenzie.eris.data.outgoing.gateway.RequestMembers;
 import mx.kenzie.eris.error.APIException;
 import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.AttachmentUploader;
 import mx.kenzie.eris.network.CacheJson;
+import mx.kenzie.eris.network.DirectChannelStore;
+import mx.kenzie.eris.network.EditScheduler;
 import mx.kenzie.eris.network.EntityCache;
+import mx.kenzie.eris.network.JsonBody;
+import mx.kenzie.eris.network.MemberCache;
+import mx.kenzie.eris.network.MessageCache;
+import mx.kenzie.eris.network.MessageCoalescer;
 import mx.kenzie.eris.network.NetworkController;
+import mx.kenzie.eris.network.PermissionCache;
+import mx.kenzie.eris.network.RateLimits;
+import mx.kenzie.eris.network.RoleBatcher;
+import mx.kenzie.eris.network.Snapshot;
+import mx.kenzie.eris.utility.JsonWriter;
 import mx.kenzie.eris.utility.Request;
 import mx.kenzie.eris.utility.Schema;
 import mx.kenzie.eris.utility.URLBuilder;
 import mx.kenzie.grammar.Optional;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 import sun.reflect.ReflectionFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
@@ -41,17 +61,37 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class DiscordAPI {
 
     private final NetworkController network;
     private final Bot bot;
     private final EntityCache cache = new EntityCache();
+    private final MemberCache members = new MemberCache(this);
+    private final PermissionCache permissions = new PermissionCache(members);
+    private final MessageCache messages = new MessageCache(this);
+    private Snapshot snapshot;
+    private final Map<String, MemberRequest> memberRequests = new ConcurrentHashMap<>();
+    private final Set<MemberRequest> wholeGuilds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nonces = new AtomicLong();
+    private final AttachmentUploader uploader;
+    private final EditScheduler edits = new EditScheduler(this);
+    private final RoleBatcher roles;
+    private final RateLimits rateLimits = new RateLimits();
+    volatile DirectChannelStore directChannels = new DirectChannelStore(null);
     private String application;
 
     DiscordAPI(NetworkController network, Bot bot) {
         this.network = network;
         this.bot = bot;
+        this.uploader = new AttachmentUploader(this, network);
+        this.roles = new RoleBatcher(bot, this);
     }
 
     public static DiscordException unlinkedEntity(Entity entity) {
@@ -72,6 +112,78 @@ public class DiscordAPI {
         return cache;
     }
 
+    public MemberCache getMemberCache() {
+        return members;
+    }
+
+    public PermissionCache getPermissionCache() {
+        return permissions;
+    }
+
+    public MessageCache getMessageCache() {
+        return messages;
+    }
+
+    public DirectChannelStore getDirectChannels() {
+        return directChannels;
+    }
+
+    public RateLimits getRateLimits() {
+        return rateLimits;
+    }
+
+    public RoleBatcher getRoleBatcher() {
+        return roles;
+    }
+
+    public EditScheduler getEditScheduler() {
+        return edits;
+    }
+
+    public AttachmentUploader getUploader() {
+        return uploader;
+    }
+
+    /**
+     * Runs long background work (purges, member jobs, broadcasts), which may wait on rate limits.
+     */
+    @ApiStatus.Internal
+    public ExecutorService executor() {
+        return bot.executor;
+    }
+
+    /**
+     * @return the message coalescer, if {@link Bot#setMessageCoalescing(long)} is on
+     */
+    public @Nullable MessageCoalescer getCoalescer() {
+        return bot.coalescer;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Restores the entity and member caches from a snapshot file (if there is one),
+     * and keeps the file up to date from then on. This turns on the entity cache.
+     * <p>
+     * This should be called before the bot is started.
+     */
+    public Snapshot loadSnapshot(File file) {
+        final Snapshot snapshot = new Snapshot(this, file.toPath());
+        try {
+            snapshot.load(members);
+        } catch (IOException ex) {
+            throw new DiscordException("Unable to load snapshot.", ex);
+        }
+        this.cache.setSnapshot(snapshot);
+        this.members.setSnapshot(snapshot);
+        this.snapshot = snapshot;
+        this.bot.scheduler().scheduleWithFixedDelay(snapshot::flush, Snapshot.INTERVAL, Snapshot.INTERVAL,
+            TimeUnit.MILLISECONDS);
+        return snapshot;
+    }
+
     public CompletableFuture<?> dispatch(Outgoing payload) {
         return this.network.sendPayload(payload);
     }
@@ -103,14 +215,26 @@ public class DiscordAPI {
         return this.request0(type, path, body, object, false, headers);
     }
 
+    /**
+     * Sends a request with a JSON body, which can be a payload, a map or a list (written into the request without
+     * a string of the whole body, see {@link JsonBody}), or some already-written JSON.
+     */
+    @SuppressWarnings("all")
+    public <Type> CompletableFuture<Type> requestJson(String type, String path, Object body, Type object,
+                                                      String... headers) {
+        return this.request0(type, path, body, object, true, headers);
+    }
+
     @SuppressWarnings("all")
-    protected <Type> CompletableFuture<Type> request0(String type, String path, String body, Type object,
+    protected <Type> CompletableFuture<Type> request0(String type, String path, Object body, Type object,
                                                       boolean defaultAuthorisation,
                                                       String... headers) {
         for (String header : headers) if (header == null) throw new NullPointerException("Null header");
         return CompletableFuture.supplyAsync(() -> {
             try {
-                final HttpResponse<InputStream> request = this.network.request(type, path, body,
+                final JsonBody json = body == null ? null : body instanceof JsonBody ready ? ready
+                    : body instanceof String text ? JsonBody.of(text) : JsonBody.of(body);
+                final HttpResponse<InputStream> request = this.network.requestBody(type, path, json,
                     defaultAuthorisation ? URLBuilder.mergeHeaders(headers, bot.headers) : headers);
                 return this.handle(request, object);
             } catch (IOException | InterruptedException ex) {
@@ -128,9 +252,15 @@ public class DiscordAPI {
     @SuppressWarnings({"unchecked", "rawtypes"})
     protected <Type> Type handle(HttpResponse<InputStream> request, Type object) {
         final Map<String, Object> map = new HashMap<>();
+        this.rateLimits.update(request);
         try (final Json json = new CacheJson(request.body(), cache)) {
             final boolean isMap = json.willBeMap();
             if (isMap) map.putAll(json.toMap());
+            if (request.statusCode() == 429) {
+                final RateLimitException limit = RateLimits.exception(request, map);
+                this.bot.debug("Rate limited for " + limit.getRetryAfter() + "ms: " + map);
+                throw limit;
+            }
             if (isMap && map.containsKey("code") && map.containsKey("message")) {
                 this.bot.debug("Error " + map.get("code") + ": " + map);
                 final APIException error = new APIException(map.get("message") + "");
@@ -165,18 +295,51 @@ public class DiscordAPI {
     public Message sendMessage(String channel, Message message) {
         message.unready();
         if (message.api == null) message.api = this;
+        if (uploader.shouldUpload(message.attachments)) { // large files go up first, then the message names them
+            this.uploader.upload(channel, message.attachments).thenAccept(attachments ->
+                    this.sendMessage0(channel, message, this.withAttachments(message, attachments)))
+                .exceptionally(throwable -> {
+                    if (throwable instanceof CompletionException ex) throwable = ex.getCause();
+                    message.error(throwable);
+                    message.finish();
+                    return null;
+                });
+            return message;
+        }
+        return this.sendMessage0(channel, message, message);
+    }
+
+    /**
+     * A copy of the sendable parts of this message, with these attachments instead of its own.
+     */
+    private Message withAttachments(Message message, Attachment[] attachments) {
+        final Message payload = new Message();
+        payload.flags = message.flags;
+        payload.tts = message.tts;
+        payload.content = message.content;
+        payload.components = message.components;
+        payload.allowed_mentions = message.allowed_mentions;
+        payload.embeds = message.embeds;
+        payload.payload_json = message.payload_json;
+        payload.message_reference = message.message_reference;
+        payload.sticker_ids = message.sticker_ids;
+        payload.attachments = attachments;
+        return payload;
+    }
+
+    private Message sendMessage0(String channel, Message message, Message payload) {
         multipart_request:
-        if (message.attachments != null && message.attachments.length > 0) {
+        if (payload.attachments != null && payload.attachments.length > 0) {
             any_to_upload:
             {
-                for (Attachment attachment : message.attachments)
-                    if (attachment.content != null) break any_to_upload;
+                for (Attachment attachment : payload.attachments)
+                    if (attachment != null && attachment.content != null) break any_to_upload;
                 break multipart_request;
             }
             final MultiBody body = new MultiBody();
-            body.sectionMessage(Json.toJson(message, UnsentMessage.class, null));
-            for (final Attachment attachment : message.attachments) {
-                if (attachment != null)
+            body.sectionMessage(Json.toJson(payload, UnsentMessage.class, null));
+            for (final Attachment attachment : payload.attachments) {
+                if (attachment != null && attachment.content != null) // uploaded files are only named
                     body.section("files[" + attachment.id + "]", attachment);
             }
             body.finish();
@@ -184,7 +347,7 @@ public class DiscordAPI {
                 .exceptionally(message::error).thenAccept(Lazy::finish);
             return message;
         }
-        final String body = Json.toJson(message, UnsentMessage.class, null);
+        final String body = Json.toJson(payload, UnsentMessage.class, null);
         this.post("/channels/" + channel + "/messages", body, message)
             .exceptionally(message::error).thenAccept(Lazy::finish);
         return message;
@@ -230,10 +393,14 @@ public class DiscordAPI {
     }
 
     public Message sendMessagePoint(String path, Message message, Class<?> type) {
+        return this.sendMessagePoint(path, message, Json.toJson(message, type, null));
+    }
+
+    protected Message sendMessagePoint(String path, Message message, String json) {
         message.unready();
         if (message.attachments != null && message.attachments.length > 0) {
             final MultiBody body = new MultiBody();
-            body.sectionMessage(Json.toJson(message, UnsentMessage.class, null));
+            body.sectionMessage(json);
             for (final Attachment attachment : message.attachments) {
                 if (attachment.filename != null)
                     body.section("files[" + attachment.id + "]", attachment);
@@ -244,26 +411,83 @@ public class DiscordAPI {
             this.multiRequest("POST", path, body, message)
                 .exceptionally(message::error).thenAccept(Lazy::finish);
         } else {
-            final String body = Json.toJson(message, type, null);
-            this.post(path, body, message)
+            this.post(path, json, message)
                 .exceptionally(message::error).thenAccept(Lazy::finish);
         }
         if (message.api == null) message.api = this;
         return message;
     }
 
+    /**
+     * Posts the message through the webhook, which needs its token.
+     * Without {@code wait} Discord does not send the message back, so this is ready (but empty) once it has been accepted.
+     * A {@link WebhookMessage} can also change the name and avatar it is posted under.
+     */
+    public <IThread> Message executeWebhook(Webhook webhook, Message message, @Nullable IThread thread, boolean wait) {
+        if (webhook.token == null) throw new DiscordException("The webhook " + webhook.id + " has no token.");
+        String path = "/webhooks/" + webhook.id + "/" + webhook.token + "?wait=" + wait;
+        if (thread != null) path += "&thread_id=" + this.getId(thread);
+        if (message instanceof WebhookMessage webhookMessage)
+            return this.sendMessagePoint(path, message, webhookMessage.toJson());
+        return this.sendMessagePoint(path, message, UnsentMessage.class);
+    }
+
     public Channel createDirectChannel(long id) {
         return this.createDirectChannel(Long.toString(id));
     }
 
+    /**
+     * Opens a DM with the user. Channels that are already known (see {@link #getDirectChannels()})
+     * are not requested again, so the channel only has its id.
+     */
     public Channel createDirectChannel(String id) {
-        final Channel channel = cache.getOrUse(id, new Channel());
-        if (channel.api == this && channel.ready()) return channel;
-        channel.api = this;
-        this.post("/users/@me/channels", "{\"recipient_id\":" + id + "}", channel).thenAccept(Lazy::finish);
+        final Channel channel = this.directChannel(id);
+        this.openDirectChannel(id, channel);
         return channel;
     }
 
+    /**
+     * Opens a DM with the user, as {@link #createDirectChannel(String)} does.
+     * The future completes once the channel is ready (or has failed), without a thread waiting for it.
+     */
+    public CompletableFuture<Channel> openDirectChannel(String id) {
+        return this.openDirectChannel(id, this.directChannel(id));
+    }
+
+    private Channel directChannel(String user) { // the cache is keyed by the channel's id, never the user's
+        final String known = directChannels.get(user);
+        if (known == null) return new Channel();
+        return cache.getOrUse(known, new Channel());
+    }
+
+    private CompletableFuture<Channel> openDirectChannel(String id, Channel channel) {
+        if (channel.api == this && channel.ready()) return CompletableFuture.completedFuture(channel);
+        channel.api = this;
+        final String known = directChannels.get(id);
+        if (known != null) {
+            channel.id = known;
+            channel.type = 1;
+            channel.finish();
+            return CompletableFuture.completedFuture(channel);
+        }
+        return this.post("/users/@me/channels", "{\"recipient_id\":" + id + "}", channel).thenApply(value -> {
+            if (channel.error() == null && channel.id != null) {
+                this.directChannels.put(id, channel.id);
+                this.cache.store(channel);
+            }
+            channel.finish();
+            return channel;
+        });
+    }
+
+    /**
+     * Sends the message as a DM to each of these users, in the background. See {@link Broadcast}.
+     */
+    public <IUser> Broadcast broadcast(Iterable<IUser> users, Message message,
+                                       @Nullable Consumer<? super Broadcast.Result> results) {
+        return new Broadcast(this, message, results).start(users.iterator());
+    }
+
     public Channel getChannel(long id) {
         return this.getChannel(Long.toString(id));
     }
@@ -407,6 +631,8 @@ public class DiscordAPI {
     }
 
     public <IGuild, IUser> Member getMember(IGuild guild, IUser user) {
+        final MemberCache.Entry entry = this.getLocalMember(guild, user);
+        if (entry != null && (bot.intents & Intents.GUILD_MEMBERS) != 0) return entry.toMember();
         final Member member = new Member(); // don't cache members due to the ID overload
         if (user instanceof User u) member.user = u;
         else member.user.id = this.getUserId(user);
@@ -417,6 +643,95 @@ public class DiscordAPI {
         return member;
     }
 
+    public <IGuild> MemberRequest requestMembers(IGuild guild, String query, int limit, boolean presences) {
+        return this.requestMembers(guild, query, limit, presences, null);
+    }
+
+    public <IGuild> MemberRequest requestMembers(IGuild guild, String query, int limit, boolean presences,
+                                                 @Nullable Consumer<? super Member> consumer) {
+        final RequestMembers request = new RequestMembers(this.getGuildId(guild), query, limit);
+        request.data.presences = presences;
+        return this.requestMembers(request, consumer);
+    }
+
+    public <IGuild> MemberRequest requestMembers(IGuild guild, Collection<?> users, boolean presences) {
+        final List<String> ids = new ArrayList<>(users.size());
+        for (final Object user : users) ids.add(this.getUserId(user));
+        final RequestMembers request = new RequestMembers(this.getGuildId(guild), ids.toArray(new String[0]));
+        request.data.presences = presences;
+        return this.requestMembers(request, null);
+    }
+
+    /**
+     * Asks the gateway for guild members (requires the GUILD_MEMBERS intent).
+     * Members arrive in chunks, which are matched to the result by the request's nonce.
+     * A request for more than {@link MemberRequest#MAX_USERS} ids is sent as several, with one result.
+     */
+    public MemberRequest requestMembers(RequestMembers request, @Nullable Consumer<? super Member> consumer) {
+        final List<RequestMembers> parts = split(request);
+        for (final RequestMembers part : parts)
+            if (!part.verify()) throw new DiscordException("Member request needs a guild and either a query or ids.");
+        MemberRequest result = null;
+        for (final RequestMembers part : parts) {
+            if (part.data.nonce == null) part.data.nonce = Long.toHexString(nonces.incrementAndGet());
+            if (result == null) result = new MemberRequest(this, request.data.guild_id, part.data.nonce, consumer);
+            else result.expect(part.data.nonce);
+            this.memberRequests.put(part.data.nonce, result);
+        }
+        final MemberRequest finished = result;
+        if ("".equals(request.data.query) && request.data.limit == 0) this.wholeGuilds.add(result);
+        for (final RequestMembers part : parts) this.dispatch(part).exceptionally(throwable -> {
+            for (final RequestMembers other : parts) this.memberRequests.remove(other.data.nonce);
+            this.wholeGuilds.remove(finished);
+            finished.cancel(throwable);
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Each part after the first gets the nonce (if there is one) with its index added.
+     */
+    private static List<RequestMembers> split(RequestMembers request) {
+        final String[] ids = request.data.user_ids;
+        if (ids == null || ids.length <= MemberRequest.MAX_USERS) return List.of(request);
+        final List<RequestMembers> parts = new ArrayList<>();
+        for (int start = 0; start < ids.length; start += MemberRequest.MAX_USERS) {
+            final int end = Math.min(ids.length, start + MemberRequest.MAX_USERS);
+            final RequestMembers part = new RequestMembers(request.data.guild_id, Arrays.copyOfRange(ids, start, end));
+            part.data.presences = request.data.presences;
+            part.data.limit = request.data.limit;
+            if (request.data.nonce != null)
+                part.data.nonce = start == 0 ? request.data.nonce : request.data.nonce + "-" + parts.size();
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    void receiveMembers(IdentifyGuildMembers chunk) {
+        if (chunk.nonce == null) return;
+        final MemberRequest request = memberRequests.get(chunk.nonce);
+        if (request == null) return;
+        if (!request.accept(chunk)) return;
+        this.memberRequests.remove(chunk.nonce);
+        if (request.isComplete() && wholeGuilds.remove(request) && request.error() == null)
+            this.members.reconcile(chunk.guild_id); // everyone was listed, so anyone else has left
+    }
+
+    void cancelMemberRequests(Throwable reason) {
+        for (final MemberRequest request : memberRequests.values()) request.cancel(reason);
+        this.memberRequests.clear();
+        this.wholeGuilds.clear();
+    }
+
+    /**
+     * The member as last seen on the gateway, or null if they are not known.
+     * Without the GUILD_MEMBERS intent this may be out of date.
+     */
+    public <IGuild, IUser> MemberCache.Entry getLocalMember(IGuild guild, IUser user) {
+        return members.get(this.getGuildId(guild), this.getUserId(user));
+    }
+
     public String getUserId(Object object) {
         if (object == null) return null;
         if (object instanceof String value) return value;
@@ -471,6 +786,72 @@ public class DiscordAPI {
         this.request("PUT", "/guilds/" + gid + "/bans/" + uid, Json.toJson(ban), null).thenRun(ban::finish);
     }
 
+    /**
+     * Bans many users, in requests of up to {@value BulkBan#MAX_USERS} that are all sent at once.
+     * The result has every user that was banned or could not be, from all the requests.
+     * Rate limited requests are sent again up to {@link BulkBan#RETRIES} times; if a request still fails,
+     * its users are counted as failed and the result has the error.
+     */
+    public <
+        @Accept({long.class, String.class, Guild.class}) IGuild,
+        @Accept({long.class, String.class, User.class}) IUser
+        > BulkBan bulkBan(IGuild guild, Collection<IUser> users, int deleteMessageSeconds, @Nullable String reason) {
+        if (deleteMessageSeconds < 0 || deleteMessageSeconds > BulkBan.MAX_DELETE_SECONDS)
+            throw new DiscordException("Messages can only be deleted from the last " + BulkBan.MAX_DELETE_SECONDS
+                + " seconds, not " + deleteMessageSeconds + ".");
+        final String gid = this.getGuildId(guild);
+        final BulkBan result = new BulkBan();
+        result.api = this;
+        result.unready();
+        final List<String> ids = new ArrayList<>(users.size());
+        for (final IUser user : users) ids.add(this.getUserId(user));
+        final String[] headers = reason != null ? new String[] {"X-Audit-Log-Reason", reason} : new String[0];
+        final List<String> banned = Collections.synchronizedList(new ArrayList<>()),
+            failed = Collections.synchronizedList(new ArrayList<>());
+        final List<DiscordException> errors = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<?>> requests = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += BulkBan.MAX_USERS) {
+            final List<String> chunk = ids.subList(start, Math.min(ids.size(), start + BulkBan.MAX_USERS));
+            final Map<String, Object> body = new HashMap<>();
+            body.put("user_ids", chunk);
+            body.put("delete_message_seconds", deleteMessageSeconds);
+            requests.add(this.bulkBan(gid, body, headers, 0).thenAccept(response -> {
+                if (response.error() != null) {
+                    errors.add(response.error());
+                    failed.addAll(chunk); // the whole request failed
+                    return;
+                }
+                if (response.banned_users != null) banned.addAll(Arrays.asList(response.banned_users));
+                if (response.failed_users != null) failed.addAll(Arrays.asList(response.failed_users));
+            }));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).whenComplete((value, throwable) -> {
+            synchronized (result) {
+                result.banned_users = banned.toArray(new String[0]);
+                result.failed_users = failed.toArray(new String[0]);
+            }
+            if (!errors.isEmpty()) result.error(errors.get(0));
+            else if (throwable != null) result.error(throwable);
+            else result.finish();
+        });
+        return result;
+    }
+
+    private CompletableFuture<BulkBan> bulkBan(String guild, Map<String, Object> body, String[] headers, int attempt) {
+        final BulkBan response = new BulkBan();
+        return this.requestJson("POST", "/guilds/" + guild + "/bulk-ban", body, response, headers)
+            .handle((value, throwable) -> {
+                if (throwable instanceof CompletionException ex) throwable = ex.getCause();
+                if (throwable != null) response.error(throwable);
+                if (!(response.error() instanceof RateLimitException limit) || attempt >= BulkBan.RETRIES)
+                    return CompletableFuture.completedFuture(response);
+                final Executor delay = CompletableFuture.delayedExecutor(limit.getRetryAfter(), TimeUnit.MILLISECONDS,
+                    bot.executor);
+                return CompletableFuture.runAsync(() -> {}, delay)
+                    .thenCompose(nothing -> this.bulkBan(guild, body, headers, attempt + 1));
+            }).thenCompose(next -> next);
+    }
+
     public <
         @Accept({long.class, String.class, Guild.class}) IGuild,
         @Accept({long.class, String.class, User.class}) IUser
@@ -560,11 +941,14 @@ public class DiscordAPI {
 
     public void interactionResponse(Interaction interaction, Interaction.Response response) {
         interaction.alreadyResponded = true;
-        final String body = Json.toJson(response);
+        if (interaction.inline != null && interaction.inline.complete(JsonWriter.toJson(response))) { // sent in the http reply
+            if (response.data() instanceof Lazy lazy) lazy.finish();
+            return;
+        }
+        final String path = "/interactions/" + interaction.id + "/" + interaction.token + "/callback";
         if (response.data() instanceof Lazy lazy)
-            this.post("/interactions/" + interaction.id + "/" + interaction.token + "/callback", body, lazy)
-                .exceptionally(lazy::error).thenAccept(Lazy::finish);
-        else this.post("/interactions/" + interaction.id + "/" + interaction.token + "/callback", body, null);
+            this.request0("POST", path, response, lazy, true).exceptionally(lazy::error).thenAccept(Lazy::finish);
+        else this.request0("POST", path, response, null, true);
     }
 
     @SuppressWarnings("unchecked")
@@ -619,6 +1003,7 @@ public class DiscordAPI {
         final Snowflake cached = cache.get(snowflake.id);
         if (cached != null) {
             this.cache.helper.mapToObject(cached, cached.getClass(), data);
+            this.cache.store(cached);
             return (Type) cached;
         }
         this.cache.store(snowflake);
@@ -62,6 +62,21 @@ public abstract class Expecting<Type> extends Lazy {
         }
     }
 
+    /**
+     * Stops waiting for a result, e.g. when the listener that would have given it has expired.
+     * Anything waiting on this is released.
+     */
+    public void expire() {
+        synchronized (this) {
+            if (ready0) return;
+            this.triggered0 = false;
+        }
+        this.cancel();
+        synchronized (lock) {
+            this.lock.notifyAll();
+        }
+    }
+
     protected synchronized boolean cancelled() {
         return this.cancelled0;
     }
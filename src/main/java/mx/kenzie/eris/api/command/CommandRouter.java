@@ -0,0 +1,156 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.command.Command;
+import mx.kenzie.eris.api.entity.command.Option;
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.magic.OptionType;
+import mx.kenzie.eris.api.utility.AutocompleteIndex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the handler for a command interaction.
+ * <p>
+ * Commands are looked up by (type, name, guild) rather than checked one by one,
+ * falling back to the global command when there is no guild-specific one.
+ * Subcommand groups and subcommands can have their own handlers: the interaction's options
+ * are followed down the tree, and the deepest handler found is the one that is run.
+ * <p>
+ * Autocomplete interactions for options with an index are answered here, without reaching a handler.
+ */
+public class CommandRouter {
+
+    protected final Map<Key, Node> roots = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the handler for the command itself.
+     * This replaces any handler the command already had.
+     */
+    public void register(Command command, CommandHandler handler) {
+        this.register(command, "", handler);
+    }
+
+    /**
+     * Sets the handler for a subcommand (or subcommand group) of this command,
+     * e.g. {@code "settings reset"} for the {@code reset} subcommand in the {@code settings} group.
+     */
+    public void register(Command command, String path, CommandHandler handler) {
+        Node node = roots.computeIfAbsent(new Key(command.type, command.name, command.guild_id), key -> new Node());
+        node.command = command;
+        for (final String part : path.trim().split("\\s+")) {
+            if (part.isEmpty()) continue;
+            node = node.children.computeIfAbsent(part, key -> new Node());
+        }
+        node.handler = handler;
+    }
+
+    public void unregister(Command command) {
+        this.roots.remove(new Key(command.type, command.name, command.guild_id));
+    }
+
+    public void clear() {
+        this.roots.clear();
+    }
+
+    /**
+     * Runs the handler for this interaction, if there is one.
+     *
+     * @return whether a handler was found
+     */
+    public boolean dispatch(Interaction interaction) {
+        return this.dispatch(interaction, null);
+    }
+
+    /**
+     * @param claimed run (if there is a handler for this interaction) just before the handler
+     */
+    public boolean dispatch(Interaction interaction, Runnable claimed) {
+        final CommandHandler handler = this.find(interaction);
+        if (handler == null) return false;
+        if (claimed != null) claimed.run();
+        try {
+            handler.on(interaction);
+        } catch (Throwable ex) {
+            Bot.handle(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Answers an autocomplete interaction from the focused option's index (see {@link Option#autocomplete(AutocompleteIndex)}).
+     *
+     * @return whether the option had an index
+     */
+    public boolean complete(Interaction interaction) {
+        final Node node = this.root(interaction);
+        if (node == null || node.command == null) return false;
+        Option[] definitions = node.command.options;
+        Interaction.Option[] options = interaction.data.options;
+        search:
+        while (options != null && definitions != null) {
+            for (final Interaction.Option option : options) {
+                final Option definition = this.definition(definitions, option.name);
+                if (definition == null) continue;
+                if (option.type == OptionType.SUB_COMMAND || option.type == OptionType.SUB_COMMAND_GROUP) {
+                    definitions = definition.options;
+                    options = option.options;
+                    continue search;
+                }
+                if (!option.focused) continue;
+                if (definition.index == null) return false;
+                interaction.respond(definition.index.complete(option.value == null ? "" : String.valueOf(option.value)));
+                return true;
+            }
+            break;
+        }
+        return false;
+    }
+
+    private Option definition(Option[] definitions, String name) {
+        for (final Option definition : definitions) if (definition.name.equals(name)) return definition;
+        return null;
+    }
+
+    private Node root(Interaction interaction) {
+        final Interaction.Data data = interaction.data;
+        if (data == null || data.type == null || data.name == null) return null;
+        final Node node = interaction.guild_id != null ? roots.get(new Key(data.type, data.name, interaction.guild_id)) : null;
+        if (node != null) return node;
+        return roots.get(new Key(data.type, data.name, null));
+    }
+
+    public CommandHandler find(Interaction interaction) {
+        final Interaction.Data data = interaction.data;
+        Node node = this.root(interaction);
+        if (node == null) return null;
+        CommandHandler handler = node.handler;
+        Interaction.Option[] options = data.options;
+        descend:
+        while (options != null && !node.children.isEmpty()) {
+            for (final Interaction.Option option : options) {
+                if (option.type != OptionType.SUB_COMMAND && option.type != OptionType.SUB_COMMAND_GROUP) continue;
+                node = node.children.get(option.name);
+                if (node == null) break descend;
+                if (node.handler != null) handler = node.handler;
+                options = option.options;
+                continue descend;
+            }
+            break;
+        }
+        return handler;
+    }
+
+    protected record Key(int type, String name, String guild) {
+    }
+
+    protected static class Node {
+
+        protected final Map<String, Node> children = new ConcurrentHashMap<>();
+        protected volatile CommandHandler handler;
+        protected volatile Command command;
+
+    }
+
+}
@@ -0,0 +1,9 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.api.event.Interaction;
+
+public interface ComponentHandler {
+
+    void on(Interaction interaction, CustomId.Reader state) throws Throwable;
+
+}
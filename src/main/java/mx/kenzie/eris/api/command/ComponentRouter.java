@@ -0,0 +1,91 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.event.Interaction;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Runs component handlers by the key in a signed custom id (see {@link CustomId}),
+ * so buttons and menus need no listener kept for them.
+ * <p>
+ * By default, ids are signed with a random secret, so they only work until the bot is restarted.
+ * Set a fixed secret (the same one on every instance) for ids that keep working across restarts and processes.
+ */
+public class ComponentRouter {
+
+    protected final Map<String, ComponentHandler> handlers = new ConcurrentHashMap<>();
+    protected volatile CustomId codec;
+
+    public ComponentRouter() {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.codec = new CustomId(secret);
+    }
+
+    public void setSecret(byte[] secret) {
+        this.codec = new CustomId(secret);
+    }
+
+    /**
+     * @param maxAge how long (in milliseconds) an id keeps working after it is made
+     */
+    public void setSecret(byte[] secret, long maxAge) {
+        this.codec = new CustomId(secret, maxAge);
+    }
+
+    public void register(String key, ComponentHandler handler) {
+        this.handlers.put(key, handler);
+    }
+
+    public void unregister(String key) {
+        this.handlers.remove(key);
+    }
+
+    /**
+     * Makes a custom id for the given handler, holding whatever state is written.
+     */
+    public String id(String key, Consumer<CustomId.Writer> state) {
+        final CustomId.Writer writer = new CustomId.Writer();
+        if (state != null) state.accept(writer);
+        return codec.encode(key, writer);
+    }
+
+    public String id(String key) {
+        return this.id(key, null);
+    }
+
+    /**
+     * Runs the handler for this interaction's custom id, if there is one and the id's signature is valid.
+     *
+     * @return whether a handler was run
+     */
+    public boolean dispatch(Interaction interaction) {
+        return this.dispatch(interaction, null);
+    }
+
+    /**
+     * @param claimed run (if there is a handler for this interaction) just before the handler
+     */
+    public boolean dispatch(Interaction interaction, Runnable claimed) {
+        if (interaction.data == null || interaction.data.custom_id == null) return false;
+        final String id = interaction.data.custom_id;
+        final String key = CustomId.handler(id);
+        if (key == null) return false;
+        final ComponentHandler handler = handlers.get(key);
+        if (handler == null) return false;
+        final CustomId.Reader state = codec.decode(id);
+        if (state == null) return false;
+        if (claimed != null) claimed.run();
+        try {
+            handler.on(interaction, state);
+        } catch (Throwable ex) {
+            Bot.handle(ex);
+        }
+        return true;
+    }
+
+}
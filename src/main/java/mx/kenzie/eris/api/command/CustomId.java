@@ -0,0 +1,208 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.error.DiscordException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs a handler key and some state into a component's {@code custom_id}, signed so that it cannot be forged.
+ * This lets a component carry everything its handler needs, rather than the bot keeping a listener for it.
+ * <p>
+ * The id is the handler key, a {@value #SEPARATOR} and then the time it was made, the state
+ * and a truncated HMAC-SHA256 in URL-safe base64.
+ * Numbers are written as variable-length integers, so small values cost a byte or two.
+ * Discord limits custom ids to {@value #MAX_LENGTH} characters.
+ * <p>
+ * Ids older than the maximum age (by default {@link #MAX_AGE}) are rejected, so a signed id cannot be replayed forever.
+ */
+public class CustomId {
+
+    public static final int MAX_LENGTH = 100, TAG_LENGTH = 8;
+    public static final char SEPARATOR = '~';
+    public static long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+    private static final long SKEW = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    protected final SecretKeySpec secret;
+    protected final long maxAge;
+
+    public CustomId(byte[] secret) {
+        this(secret, MAX_AGE);
+    }
+
+    /**
+     * @param maxAge how long (in milliseconds) an id is accepted for after it is made
+     */
+    public CustomId(byte[] secret, long maxAge) {
+        if (secret == null || secret.length == 0) throw new IllegalArgumentException("A secret is required.");
+        this.secret = new SecretKeySpec(secret.clone(), "HmacSHA256");
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The handler key of an id, without checking it.
+     */
+    public static String handler(String id) {
+        if (id == null) return null;
+        final int index = id.indexOf(SEPARATOR);
+        return index < 1 ? null : id.substring(0, index);
+    }
+
+    public String encode(String handler, Writer state) {
+        return this.encode(handler, state, System.currentTimeMillis());
+    }
+
+    String encode(String handler, Writer state, long now) {
+        if (handler.indexOf(SEPARATOR) > -1) throw new IllegalArgumentException("Handler key cannot contain " + SEPARATOR);
+        final Writer writer = new Writer().writeLong(now / 1000);
+        if (state != null) writer.output.writeBytes(state.output.toByteArray());
+        final byte[] data = writer.output.toByteArray();
+        final byte[] tag = this.sign(handler, data);
+        final byte[] payload = Arrays.copyOf(data, data.length + TAG_LENGTH);
+        System.arraycopy(tag, 0, payload, data.length, TAG_LENGTH);
+        final String id = handler + SEPARATOR + ENCODER.encodeToString(payload);
+        if (id.length() > MAX_LENGTH)
+            throw new IllegalArgumentException("Custom id is " + id.length() + " characters, over " + MAX_LENGTH);
+        return id;
+    }
+
+    /**
+     * @return the state, or null if the id was not made with this secret (or was changed, or is too old)
+     */
+    public Reader decode(String id) {
+        return this.decode(id, System.currentTimeMillis());
+    }
+
+    Reader decode(String id, long now) {
+        final String handler = handler(id);
+        if (handler == null) return null;
+        final byte[] payload;
+        try {
+            payload = DECODER.decode(id.substring(handler.length() + 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (payload.length <= TAG_LENGTH) return null; // every id has at least its time
+        final byte[] data = Arrays.copyOf(payload, payload.length - TAG_LENGTH);
+        final byte[] tag = Arrays.copyOf(this.sign(handler, data), TAG_LENGTH);
+        if (!MessageDigest.isEqual(tag, Arrays.copyOfRange(payload, data.length, payload.length))) return null;
+        final Reader reader = new Reader(handler, data);
+        final long made = reader.readLong() * 1000;
+        if (now - made > maxAge || made - now > SKEW) return null;
+        return reader;
+    }
+
+    protected byte[] sign(String handler, byte[] data) {
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secret);
+            mac.update(handler.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) SEPARATOR);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException ex) {
+            throw new DiscordException("Unable to sign custom id.", ex);
+        }
+    }
+
+    public static final class Writer {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        public Writer writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                this.output.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            this.output.write((int) zigzag);
+            return this;
+        }
+
+        public Writer writeInt(int value) {
+            return this.writeLong(value);
+        }
+
+        public Writer writeBoolean(boolean value) {
+            this.output.write(value ? 1 : 0);
+            return this;
+        }
+
+        public Writer writeEnum(Enum<?> value) {
+            return this.writeLong(value.ordinal());
+        }
+
+        public Writer writeString(String value) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.writeLong(bytes.length);
+            this.output.writeBytes(bytes);
+            return this;
+        }
+
+    }
+
+    public static final class Reader {
+
+        public final String handler;
+        private final byte[] data;
+        private int position;
+
+        Reader(String handler, byte[] data) {
+            this.handler = handler;
+            this.data = data;
+        }
+
+        public long readLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte current;
+            do {
+                if (position >= data.length) throw new DiscordException("Custom id has no more state.");
+                current = data[position++];
+                zigzag |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        public int readInt() {
+            return (int) this.readLong();
+        }
+
+        public boolean readBoolean() {
+            if (position >= data.length) throw new DiscordException("Custom id has no more state.");
+            return data[position++] != 0;
+        }
+
+        public <Type extends Enum<Type>> Type readEnum(Class<Type> type) {
+            final Type[] constants = type.getEnumConstants();
+            final long ordinal = this.readLong();
+            if (ordinal < 0 || ordinal >= constants.length)
+                throw new DiscordException("Custom id has no " + type.getSimpleName() + " " + ordinal + ".");
+            return constants[(int) ordinal];
+        }
+
+        public String readString() {
+            final int length = this.readInt();
+            if (length < 0 || position + length > data.length) throw new DiscordException("Custom id has no more state.");
+            final String value = new String(data, position, length, StandardCharsets.UTF_8);
+            this.position += length;
+            return value;
+        }
+
+        public boolean hasMore() {
+            return position < data.length;
+        }
+
+    }
+
+}
@@ -6,12 +6,17 @@ import mx.kenzie.eris.api.Lazy;
 import mx.kenzie.eris.api.entity.guild.CreateChannel;
 import mx.kenzie.eris.api.magic.ChannelType;
 import mx.kenzie.eris.api.utility.BulkEntity;
+import mx.kenzie.eris.api.utility.LazyList;
+import mx.kenzie.eris.api.utility.Purge;
 import mx.kenzie.eris.api.utility.RequestBuilder;
-import mx.kenzie.eris.data.Payload;
+import mx.kenzie.eris.network.MessageCache;
+import mx.kenzie.eris.network.MessageCoalescer;
 import mx.kenzie.grammar.Optional;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class Channel extends CreateChannel {
 
@@ -76,21 +81,30 @@ public class Channel extends CreateChannel {
         else this.api.delete("/channels/" + this + "/messages/" + id);
     }
 
+    /**
+     * Deletes these messages, in bulk where possible (see {@link Purge}).
+     *
+     * @return the purge, which is ready once every message has been dealt with
+     */
     @SafeVarargs
-    public final <IMessage> void deleteMessages(IMessage... messages) {
+    public final <IMessage> Purge deleteMessages(IMessage... messages) {
         if (api == null) throw DiscordAPI.unlinkedEntity(this);
-        final Set<String> ids = new HashSet<>();
+        final Set<String> ids = new LinkedHashSet<>();
         for (final Object message : messages) {
             if (message == null) continue;
             if (message instanceof Message m) ids.add(m.id);
             else ids.add(message.toString());
         }
-        class Body extends Payload {
-
-            final String[] messages = ids.toArray(new String[0]);
+        return this.purge(ids.iterator(), null);
+    }
 
-        }
-        this.api.post("/channels/" + this + "/messages/bulk-delete", new Body().toJson(null), null);
+    /**
+     * Deletes every message given by this iterator (e.g. from {@link #getMessages()}),
+     * reading them as it goes. The progress consumer is given the purge after each request.
+     */
+    public <IMessage> Purge purge(Iterator<IMessage> messages, @Nullable Consumer<? super Purge> progress) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return new Purge(api, id, progress).start(messages);
     }
 
     public Channel modify() {
@@ -123,8 +137,13 @@ public class Channel extends CreateChannel {
         return type == ChannelType.GUILD_FORUM;
     }
 
+    /**
+     * Sends this message, merging it with others if message coalescing is on (see {@link MessageCoalescer}).
+     */
     public Message send(Message message) {
         if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        final MessageCoalescer coalescer = api.getCoalescer();
+        if (coalescer != null) return coalescer.send(this, message);
         return api.sendMessage(this, message);
     }
 
@@ -137,6 +156,20 @@ public class Channel extends CreateChannel {
         return BulkEntity.of(api, Message.class, list -> this.api.get("/channels/" + id + "/pins", null, list));
     }
 
+    public BulkEntity<Webhook> getWebhooks() {
+        if (api == null) throw DiscordAPI.unlinkedEntity(Channel.this);
+        return BulkEntity.of(api, Webhook.class, list -> this.api.get("/channels/" + id + "/webhooks", null, list));
+    }
+
+    public Webhook createWebhook(String name) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        final Webhook webhook = new Webhook();
+        webhook.api = api;
+        this.api.requestJson("POST", "/channels/" + id + "/webhooks", Map.of("name", name), webhook)
+            .exceptionally(webhook::error).thenAccept(Lazy::finish);
+        return webhook;
+    }
+
     public Thread getAsThread() {
         if (this instanceof Thread thread) return thread;
         return api.clone(this, new Thread());
@@ -154,10 +187,19 @@ public class Channel extends CreateChannel {
 
     }
 
+    /**
+     * A message history query.
+     * <p>
+     * With {@link #cached()}, where the message cache has seen every message in the requested window,
+     * the query is answered locally, and only the part it has not seen is requested.
+     * Messages from the cache carry only what the cache stores (content, author, timestamps and attachment links),
+     * so this is off unless asked for.
+     */
     public class ResultMessages extends BulkEntity<Message> {
 
         transient int limit = 50;
         transient String around, before, after;
+        transient boolean local;
 
         public ResultMessages limit(int limit) {
             this.limit = Math.max(0, Math.min(limit, 100));
@@ -179,14 +221,69 @@ public class Channel extends CreateChannel {
             return this;
         }
 
+        /**
+         * Answers what it can from the message cache, rather than requesting full messages.
+         */
+        public ResultMessages cached() {
+            this.local = true;
+            return this;
+        }
+
+        /**
+         * Always requests the full messages, rather than using the message cache. This is the default.
+         */
+        public ResultMessages remote() {
+            this.local = false;
+            return this;
+        }
+
         @Override
         protected Class<Message> getType() {
             return Message.class;
         }
 
         @Override
+        @SuppressWarnings("rawtypes")
         protected CompletableFuture<List<?>> getEntities(List<?> list) {
             if (api == null) throw DiscordAPI.unlinkedEntity(Channel.this);
+            final int limit = this.limit > 0 ? this.limit : 50;
+            final MessageCache.Window window = local ? api.getMessageCache()
+                .query(Channel.this.id(), this.id(around), this.id(before), this.id(after), limit) : null;
+            if (window == null) return this.request(list, this.limit, around, before, after);
+            final List<Message> messages = window.toMessages();
+            if (window.complete()) return CompletableFuture.completedFuture(this.deliver(list, messages));
+            if (messages.isEmpty()) return this.request(list, this.limit, around, before, after);
+            final int remaining = limit - messages.size();
+            final String oldest = messages.get(messages.size() - 1).id;
+            if (!(list instanceof LazyList lazy))
+                return this.request(this.deliver(list, messages), remaining, null, oldest, null);
+            lazy.unready();
+            final LazyList<Message> rest = LazyList.of(Message.class);
+            return this.request(rest, remaining, null, oldest, null).thenApply(result -> {
+                if (!rest.successful()) {
+                    lazy.error(rest.error());
+                    return lazy;
+                }
+                messages.addAll(rest);
+                return this.deliver(lazy, messages);
+            });
+        }
+
+        private long id(String id) {
+            if (id == null || id.equals("null")) return 0;
+            return Long.parseLong(id);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private List<?> deliver(List list, List<Message> messages) {
+            if (list instanceof LazyList lazy) {
+                lazy.setBacker(messages);
+                lazy.finish();
+            } else for (final Message message : messages) list.add(message);
+            return list;
+        }
+
+        private CompletableFuture<List<?>> request(List<?> list, int limit, String around, String before, String after) {
             final Map<String, Object> query = new HashMap<>();
             if (limit > 0) query.put("limit", limit);
             if (around != null) query.put("around", around);
@@ -7,17 +7,24 @@ import mx.kenzie.eris.api.entity.command.Command;
 import mx.kenzie.eris.api.entity.guild.*;
 import mx.kenzie.eris.api.utility.BulkEntity;
 import mx.kenzie.eris.api.utility.LazyList;
+import mx.kenzie.eris.api.utility.MemberJob;
+import mx.kenzie.eris.api.utility.MemberRequest;
 import mx.kenzie.eris.api.utility.Query;
 import mx.kenzie.eris.data.Payload;
 import mx.kenzie.grammar.Name;
 import mx.kenzie.grammar.Optional;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class Guild extends Snowflake {
 
@@ -156,24 +163,46 @@ public class Guild extends Snowflake {
         return this.api.getRoles(this);
     }
 
+    /**
+     * Gives the member a role. Role changes made to a member close together are sent as one request,
+     * see {@link mx.kenzie.eris.network.RoleBatcher}.
+     * Use {@link #addMemberRole(Object, Object)} to find out when (or whether) the change was made.
+     */
     public <IUser, IRole> Guild addRole(IUser id, IRole role) {
-        if (api == null) throw DiscordAPI.unlinkedEntity(this);
-        this.unready();
-//        System.out.println("/guilds/" + this.id + "/members/" + api.getUserId(id) + "/roles/" + role);
-// todo check if this is actually correct ?
-        this.api.request("PUT", "/guilds/" + this.id + "/members/" + api.getUserId(id) + "/roles/" + role, "[]", null)
-            .exceptionally(this::error).thenRun(this::finish);
+        this.addMemberRole(id, role);
         return this;
     }
 
     public <IUser, IRole> Guild removeRole(IUser id, IRole role) {
-        if (api == null) throw DiscordAPI.unlinkedEntity(this);
-        this.unready();
-        this.api.request("DELETE", "/guilds/" + this.id + "/members/" + api.getUserId(id) + "/roles/" + role,
-            null, null).exceptionally(this::error).thenRun(this::finish);
+        this.removeMemberRole(id, role);
         return this;
     }
 
+    /**
+     * Gives the member a role, as {@link #addRole(Object, Object)} does.
+     *
+     * @return the member with their new roles, once the change has been made
+     */
+    public <IUser, IRole> Member addMemberRole(IUser id, IRole role) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.getRoleBatcher().add(this, id, role);
+    }
+
+    public <IUser, IRole> Member removeMemberRole(IUser id, IRole role) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.getRoleBatcher().remove(this, id, role);
+    }
+
+    public MemberRequest requestMembers(String query, int limit) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.requestMembers(this, query, limit, false);
+    }
+
+    public MemberRequest requestMembers(Consumer<? super Member> consumer) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.requestMembers(this, "", 0, false, consumer);
+    }
+
     public ResultChannels getChannels() {
         return new ResultChannels();
     }
@@ -223,6 +252,28 @@ public class Guild extends Snowflake {
         this.api.createBan(this, user, ban);
     }
 
+    /**
+     * Bans all these users, deleting their messages from the last {@code deleteMessageSeconds} seconds.
+     */
+    public <IUser> BulkBan bulkBan(Collection<IUser> users, int deleteMessageSeconds) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.bulkBan(this, users, deleteMessageSeconds, null);
+    }
+
+    public <IUser> BulkBan bulkBan(Collection<IUser> users, int deleteMessageSeconds, String reason) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.bulkBan(this, users, deleteMessageSeconds, reason);
+    }
+
+    /**
+     * Applies the mutation to each of these members in the background, keeping its progress in the checkpoint file.
+     */
+    public MemberJob modifyMembers(Iterator<Member> members, Path checkpoint,
+                                   Function<? super Member, ? extends ModifyMember> mutation) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return new MemberJob(api, id, checkpoint, mutation, null).start(members);
+    }
+
     public Template createTemplate(String name, String description) {
         if (api == null) throw DiscordAPI.unlinkedEntity(this);
         return this.api.createTemplate(this, name, description);
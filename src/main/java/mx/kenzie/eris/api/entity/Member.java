@@ -16,12 +16,28 @@ public class Member extends ModifyMember implements Permission {
 
     @Override
     public long permissions() {
+        if (permissions == null && permissions0 == 0 && this.isLocal()) // answer from the gateway cache if we can
+            return api.getPermissionCache().getPermissions(Long.parseLong(guild_id), user.id());
         if (permissions == null && permissions0 == 0) this.await();
         if (permissions == null) permissions = "0"; // solve null during conversion
         if (permissions0 == 0) permissions0 = Long.parseLong(permissions);
         return permissions0;
     }
 
+    /**
+     * The member's permissions in a channel, including overwrites.
+     * This is computed from the gateway cache and does not make a request.
+     */
+    public <IChannel> long permissions(IChannel channel) {
+        if (!this.isLocal()) return 0;
+        final String id = channel instanceof Snowflake snowflake ? snowflake.id : String.valueOf(channel);
+        return api.getPermissionCache().getPermissions(Long.parseLong(guild_id), user.id(), Long.parseLong(id));
+    }
+
+    private boolean isLocal() {
+        return api != null && guild_id != null && this.isValid() && api.getMemberCache().get(guild_id, user.id) != null;
+    }
+
     public boolean isValid() {
         return user != null && user.id != null;
     }
@@ -131,13 +131,14 @@ public class Message extends UnsentMessage implements Replied {
         return builder;
     }
 
+    /**
+     * Sends this message's current state as an edit.
+     * If an edit of this message is already being sent, this waits for it, and is skipped if edited again meanwhile
+     * (only the latest edit is sent, see {@link mx.kenzie.eris.network.EditScheduler}).
+     */
     public Message edit() {
         if (api == null) throw DiscordAPI.unlinkedEntity(this);
-        this.unready();
-        this.api.patch("/channels/" + channel_id + "/messages/" + id, Json.toJson(this, UnsentMessage.class, null),
-                this)
-            .exceptionally(this::error).thenAccept(Lazy::finish);
-        return this;
+        return api.getEditScheduler().edit(this);
     }
 
     public void delete() {
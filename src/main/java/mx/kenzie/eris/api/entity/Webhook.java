@@ -1,6 +1,8 @@
 package mx.kenzie.eris.api.entity;
 
+import mx.kenzie.eris.DiscordAPI;
 import mx.kenzie.grammar.Optional;
+import org.jetbrains.annotations.Nullable;
 
 public class Webhook extends Snowflake {
 
@@ -11,4 +13,20 @@ public class Webhook extends Snowflake {
     public @Optional Guild source_guild;
     public @Optional Channel source_channel;
 
+    /**
+     * Posts the message through this webhook, and waits for Discord to send it back.
+     */
+    public Message execute(Message message) {
+        return this.execute(message, null, true);
+    }
+
+    /**
+     * Posts the message through this webhook, into the thread if there is one.
+     * Without {@code wait} the message is not sent back, which saves Discord (and us) some work for feeds.
+     */
+    public <IThread> Message execute(Message message, @Nullable IThread thread, boolean wait) {
+        if (api == null) throw DiscordAPI.unlinkedEntity(this);
+        return this.api.executeWebhook(this, message, thread, wait);
+    }
+
 }
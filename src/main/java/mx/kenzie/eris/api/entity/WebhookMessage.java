@@ -0,0 +1,56 @@
+package mx.kenzie.eris.api.entity;
+
+import mx.kenzie.eris.utility.JsonWriter;
+import mx.kenzie.grammar.Grammar;
+import mx.kenzie.grammar.Optional;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * A message to be posted through a webhook, which can be sent under a different name and avatar
+ * than the webhook's own, or start a new post in a forum channel.
+ */
+public class WebhookMessage extends Message {
+
+    private static final Marshaller GRAMMAR = new Marshaller();
+
+    public @Optional String username, avatar_url, thread_name;
+
+    public WebhookMessage() {
+    }
+
+    public WebhookMessage(String content) {
+        super(content);
+    }
+
+    public WebhookMessage(String content, Embed... embeds) {
+        super(content, embeds);
+    }
+
+    public WebhookMessage(Embed... embeds) {
+        super(embeds);
+    }
+
+    /**
+     * @return the body to execute a webhook with, which is the unsent message plus the webhook's fields
+     */
+    public String toJson() {
+        return JsonWriter.toJson(GRAMMAR.marshal(this));
+    }
+
+    static class Marshaller extends Grammar {
+
+        @Override
+        protected boolean shouldSkip(Field field) { // the fields a message gains once it is sent
+            return field.getDeclaringClass() == Message.class || super.shouldSkip(field);
+        }
+
+        @Override
+        protected Map<String, Object> marshal(Object object) {
+            return super.marshal(object);
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package mx.kenzie.eris.api.entity.command;
 
 import mx.kenzie.eris.api.entity.Entity;
 import mx.kenzie.eris.api.magic.OptionType;
+import mx.kenzie.eris.api.utility.AutocompleteIndex;
 import mx.kenzie.eris.data.Payload;
 import mx.kenzie.grammar.Optional;
 import org.intellij.lang.annotations.MagicConstant;
@@ -21,6 +22,7 @@ public class Option extends Entity {
     public @Optional int[] channel_types;
     public @Optional Number min_value, max_value;
     public @Optional Integer min_length, max_length;
+    public transient AutocompleteIndex<?> index;
 
     public Option() {
     }
@@ -136,6 +138,16 @@ public class Option extends Entity {
         return this;
     }
 
+    /**
+     * Answers this option's autocomplete interactions from the index,
+     * once the command has been registered with the bot.
+     */
+    public Option autocomplete(AutocompleteIndex<?> index) {
+        this.autocomplete = true;
+        this.index = index;
+        return this;
+    }
+
     public Option merge(Option... others) {
         final List<Option> options = new ArrayList<>();
         String description = this.description;
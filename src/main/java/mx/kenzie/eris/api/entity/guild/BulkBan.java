@@ -0,0 +1,20 @@
+package mx.kenzie.eris.api.entity.guild;
+
+import mx.kenzie.eris.api.Lazy;
+
+/**
+ * The result of banning many users at once: who was banned, and who could not be
+ * (including everyone in a request that failed outright).
+ */
+public class BulkBan extends Lazy {
+
+    public static final int MAX_USERS = 200, MAX_DELETE_SECONDS = 604800;
+    public static int RETRIES = 3;
+
+    public String[] banned_users = new String[0], failed_users = new String[0];
+
+    public int size() {
+        return banned_users.length + failed_users.length;
+    }
+
+}
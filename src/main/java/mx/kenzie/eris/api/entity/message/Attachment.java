@@ -5,5 +5,6 @@ import mx.kenzie.grammar.Optional;
 public class Attachment extends UnsentAttachment {
     public @Optional String proxy_url;
     public @Optional Boolean ephemeral;
+    public @Optional String uploaded_filename;
 
 }
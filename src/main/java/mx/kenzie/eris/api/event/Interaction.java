@@ -6,6 +6,7 @@ import mx.kenzie.eris.api.Lazy;
 import mx.kenzie.eris.api.entity.*;
 import mx.kenzie.eris.api.entity.command.callback.Callback;
 import mx.kenzie.eris.api.entity.message.InteractionMessage;
+import mx.kenzie.eris.api.magic.InteractionType;
 import mx.kenzie.eris.api.magic.MessageFlags;
 import mx.kenzie.eris.api.utility.SnowflakeMap;
 import mx.kenzie.eris.data.Payload;
@@ -13,6 +14,7 @@ import mx.kenzie.grammar.Any;
 import mx.kenzie.grammar.Optional;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class Interaction extends Entity implements Event, Replied {
 
@@ -25,6 +27,13 @@ public class Interaction extends Entity implements Event, Replied {
     public transient Map<String, Object> __data;
     private transient Message message0;
     public transient boolean alreadyResponded;
+    public transient volatile boolean deferred;
+    private transient boolean completed, hidden;
+    /**
+     * When this came from an {@link mx.kenzie.eris.network.InteractionServer}, the first response
+     * is handed to the server to send back as the HTTP reply, instead of being posted.
+     */
+    public transient volatile CompletableFuture<String> inline;
 
     public Message sendMessage(Message message) {
         final String application = api.getApplicationID();
@@ -36,7 +45,24 @@ public class Interaction extends Entity implements Event, Replied {
         return this.respond(callback, callback.interactionResponseType());
     }
 
-    public Callback respond(Callback callback, int type) {
+    /**
+     * If this was deferred (see {@link #defer(boolean)}), a message is used to edit the deferred response
+     * (or sent as a follow-up, once that has been done) instead.
+     * An edit cannot make a response ephemeral, so an ephemeral message replaces a public deferred response
+     * with a follow-up.
+     */
+    public synchronized Callback respond(Callback callback, int type) {
+        if (deferred && callback instanceof Message message) {
+            // a component's update edits its message
+            if (!completed && (this.type != InteractionType.MESSAGE_COMPONENT || type == 7)) {
+                this.completed = true;
+                if (type != 7 && !hidden && (message.flags & MessageFlags.EPHEMERAL) != 0) {
+                    this.deleteOriginalResponse();
+                    this.sendMessage(message);
+                } else this.editOriginalResponse(message);
+            } else this.sendMessage(message);
+            return callback;
+        }
         final Response response;
         if (callback instanceof Entity entity) entity.api = api;
         if (callback instanceof Message message) response = new MessageResponse(message);
@@ -52,6 +78,28 @@ public class Interaction extends Entity implements Event, Replied {
         else this.respond(() -> 6); // DEFERRED_UPDATE_MESSAGE
     }
 
+    public synchronized boolean defer() {
+        return this.defer(false);
+    }
+
+    /**
+     * Acknowledges this interaction, unless a response has already been sent.
+     * Commands and modals show a loading state, components are deferred silently.
+     * Messages given to {@link #respond(Callback)} or {@link #reply(Message)} afterwards go to the deferred response.
+     *
+     * @param ephemeral whether the loading state (and the response that replaces it) is only shown to the user
+     * @return false if a response had already been sent
+     */
+    public synchronized boolean defer(boolean ephemeral) {
+        if (alreadyResponded) return false;
+        if (type == InteractionType.MESSAGE_COMPONENT) this.acknowledge(false);
+        else if (ephemeral) this.respond(new Message().withFlag(MessageFlags.EPHEMERAL), 5);
+        else this.acknowledge(true);
+        this.hidden = ephemeral;
+        this.deferred = true;
+        return true;
+    }
+
     public User getSource() {
         if (user != null && user.id != null) return user;
         if (member != null) return member.user;
@@ -106,7 +154,7 @@ public class Interaction extends Entity implements Event, Replied {
     @Override
     public Message reply(String message) {
         final Message response = new Message(message).withFlag(MessageFlags.EPHEMERAL);
-        if (alreadyResponded) this.sendMessage(response);
+        if (alreadyResponded && !deferred) this.sendMessage(response);
         else this.reply(response);
         return response;
     }
@@ -14,6 +14,7 @@ public class Ready extends Payload implements Event { // todo
     public Self user;
     public Guild[] guilds;
     public String session_id;
+    public @Optional String resume_gateway_url;
     public @Optional int[] shard;
     public Application application;
     public @Optional Payload user_settings;
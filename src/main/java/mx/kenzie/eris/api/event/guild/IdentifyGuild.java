@@ -3,6 +3,8 @@ package mx.kenzie.eris.api.event.guild;
 import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.api.entity.Channel;
 import mx.kenzie.eris.api.entity.Guild;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.Thread;
 import mx.kenzie.eris.api.entity.voice.VoiceState;
 import mx.kenzie.eris.data.Payload;
 
@@ -13,7 +15,8 @@ public class IdentifyGuild extends Guild implements Event {
     public int member_count;
     public VoiceState[] voice_states;
 
-    public Payload[] members, presences, stage_instances, guild_scheduled_events;
+    public Member[] members;
+    public Payload[] presences, stage_instances, guild_scheduled_events;
     public Channel[] channels;
     public Thread[] threads;
 //    member_count	integer	total number of members in this guild
@@ -4,11 +4,12 @@ import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.api.entity.Member;
 import mx.kenzie.eris.api.event.UpdatePresence;
 import mx.kenzie.eris.data.Payload;
+import mx.kenzie.grammar.Optional;
 
 public class IdentifyGuildMembers extends Payload implements Event {
     public String guild_id, nonce;
     public Member[] members;
     public int chunk_index, chunk_count;
-    // not_found?
-    public UpdatePresence[] presences;
+    public @Optional String[] not_found;
+    public @Optional UpdatePresence[] presences;
 }
@@ -2,9 +2,19 @@ package mx.kenzie.eris.api.event.message;
 
 import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.data.Payload;
+import mx.kenzie.eris.network.MessageCache;
 
 public class BulkDeleteMessage extends Payload implements Event {
     public String[] ids;
     public String channel_id, guild_id;
+    public transient MessageCache.Entry[] previous = new MessageCache.Entry[0];
+
+    /**
+     * The deleted messages that were in the message cache.
+     * This may be fewer than the deleted ids.
+     */
+    public MessageCache.Entry[] getPrevious() {
+        return previous;
+    }
 
 }
@@ -2,8 +2,17 @@ package mx.kenzie.eris.api.event.message;
 
 import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.data.Payload;
+import mx.kenzie.eris.network.MessageCache;
 
 public class DeleteMessage extends Payload implements Event {
     public String id, channel_id, guild_id;
+    public transient MessageCache.Entry previous;
+
+    /**
+     * The message as it was before being deleted, if it was in the message cache.
+     */
+    public MessageCache.Entry getPrevious() {
+        return previous;
+    }
 
 }
@@ -4,7 +4,17 @@ import mx.kenzie.eris.api.Event;
 import mx.kenzie.eris.api.entity.Member;
 import mx.kenzie.eris.api.entity.Message;
 import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.network.MessageCache;
 
 public class UpdateMessage extends EventMessage implements Event {
 
+    public transient MessageCache.Entry previous;
+
+    /**
+     * The message as it was before this edit, if it was in the message cache.
+     */
+    public MessageCache.Entry getPrevious() {
+        return previous;
+    }
+
 }
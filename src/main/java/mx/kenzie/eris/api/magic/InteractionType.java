@@ -0,0 +1,5 @@
+package mx.kenzie.eris.api.magic;
+
+public interface InteractionType {
+    int PING = 1, APPLICATION_COMMAND = 2, MESSAGE_COMPONENT = 3, APPLICATION_COMMAND_AUTOCOMPLETE = 4, MODAL_SUBMIT = 5;
+}
@@ -0,0 +1,163 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.api.entity.command.Option;
+import mx.kenzie.eris.api.entity.command.callback.Autocomplete;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A prefix index for answering autocomplete interactions.
+ * <p>
+ * Names are kept sorted (case-insensitively), so the names starting with some text are one range, found by binary search.
+ * A max-weight tree over that order picks the best matches from the range without looking at all of it,
+ * so a search costs about {@code limit * log(size)} however many names match.
+ * <p>
+ * The index can be rebuilt while it is in use: searches keep using the old contents until the new ones are ready.
+ */
+public class AutocompleteIndex<Type> {
+
+    public static final int MAX_CHOICES = 25;
+
+    protected volatile Contents<Type> contents = new Contents<>(new ArrayList<>());
+
+    public AutocompleteIndex() {
+    }
+
+    public AutocompleteIndex(Collection<Entry<Type>> entries) {
+        this.rebuild(entries);
+    }
+
+    private static String normalise(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public static <Type> Entry<Type> entry(String name, Type value, long weight) {
+        return new Entry<>(name, value, weight);
+    }
+
+    /**
+     * Replaces the contents of the index. Searches made meanwhile use the previous contents.
+     */
+    public void rebuild(Collection<Entry<Type>> entries) {
+        this.contents = new Contents<>(new ArrayList<>(entries));
+    }
+
+    /**
+     * Rebuilds the index on the given executor (e.g. the bot's {@link mx.kenzie.eris.Bot#executor}).
+     */
+    public CompletableFuture<Void> rebuildAsync(Collection<Entry<Type>> entries, Executor executor) {
+        return CompletableFuture.runAsync(() -> this.rebuild(entries), executor);
+    }
+
+    public int size() {
+        return contents.names.length;
+    }
+
+    /**
+     * Finds the highest-weighted names that start with the given text (ignoring case), best first.
+     */
+    public List<Entry<Type>> search(String prefix, int limit) {
+        return contents.search(prefix == null ? "" : normalise(prefix), limit);
+    }
+
+    public Option.Choice<?>[] choices(String prefix) {
+        final List<Entry<Type>> entries = this.search(prefix, MAX_CHOICES);
+        final Option.Choice<?>[] choices = new Option.Choice[entries.size()];
+        for (int i = 0; i < choices.length; i++) choices[i] = entries.get(i).toChoice();
+        return choices;
+    }
+
+    public Autocomplete complete(String prefix) {
+        return new Autocomplete(this.choices(prefix));
+    }
+
+    public record Entry<Type>(String name, Type value, long weight) {
+
+        public Option.Choice<Type> toChoice() {
+            return new Option.Choice<>(name, value);
+        }
+
+    }
+
+    protected static final class Contents<Type> {
+
+        final String[] names;
+        final Entry<Type>[] entries;
+        final int[] tree; // index of the heaviest entry below each node
+        final int leaves;
+
+        @SuppressWarnings("unchecked")
+        Contents(List<Entry<Type>> list) {
+            final int size = list.size();
+            final String[] keys = new String[size];
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = normalise(list.get(i).name);
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing((Integer i) -> keys[i]));
+            this.names = new String[size];
+            this.entries = new Entry[size];
+            for (int i = 0; i < size; i++) {
+                this.names[i] = keys[order[i]];
+                this.entries[i] = list.get(order[i]);
+            }
+            int leaves = 1;
+            while (leaves < size) leaves <<= 1;
+            this.leaves = leaves;
+            this.tree = new int[leaves * 2];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < size; i++) tree[leaves + i] = i;
+            for (int node = leaves - 1; node > 0; node--) tree[node] = this.heavier(tree[node * 2], tree[node * 2 + 1]);
+        }
+
+        private int heavier(int first, int second) {
+            if (first < 0) return second;
+            if (second < 0) return first;
+            return entries[second].weight > entries[first].weight ? second : first;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0, high = names.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (names[middle].compareTo(key) < 0) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        private int heaviest(int from, int to) { // over [from, to)
+            int result = -1;
+            for (int low = from + leaves, high = to + leaves; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) result = this.heavier(result, tree[low++]);
+                if ((high & 1) == 1) result = this.heavier(result, tree[--high]);
+            }
+            return result;
+        }
+
+        List<Entry<Type>> search(String prefix, int limit) {
+            final int from = this.lowerBound(prefix);
+            final int to = prefix.isEmpty() ? names.length : this.lowerBound(prefix + Character.MAX_VALUE);
+            final List<Entry<Type>> results = new ArrayList<>(Math.min(limit, Math.max(0, to - from)));
+            if (from >= to || limit < 1) return results;
+            final PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> {
+                final int compare = Long.compare(entries[b[2]].weight, entries[a[2]].weight);
+                return compare != 0 ? compare : Integer.compare(a[2], b[2]);
+            });
+            ranges.add(new int[] {from, to, this.heaviest(from, to)});
+            while (!ranges.isEmpty() && results.size() < limit) {
+                final int[] range = ranges.poll();
+                final int best = range[2];
+                results.add(entries[best]);
+                if (range[0] < best) ranges.add(new int[] {range[0], best, this.heaviest(range[0], best)});
+                if (best + 1 < range[1]) ranges.add(new int[] {best + 1, range[1], this.heaviest(best + 1, range[1])});
+            }
+            return results;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.message.UnsentMessage;
+import mx.kenzie.eris.error.APIException;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.error.StatusCode;
+import mx.kenzie.eris.network.RateLimits;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Sends the same message as a DM to each user in a stream, e.g. for announcements.
+ * <p>
+ * DM channels come from the API's {@link mx.kenzie.eris.network.DirectChannelStore}, so users who have been
+ * messaged before cost one request rather than two. The message is written once and the same body
+ * is sent to everyone. Up to {@link #CONCURRENCY} users are dealt with at once, waiting for the DM
+ * bucket when it is empty, and rate limited requests are tried again up to {@link #RETRIES} times.
+ * <p>
+ * The consumer is given the result for each user as soon as it is known. This is ready once every user has one.
+ * Files cannot be broadcast this way.
+ */
+public class Broadcast extends Lazy {
+
+    public static int CONCURRENCY = 4, RETRIES = 3;
+
+    protected final String body;
+    protected final @Nullable Consumer<? super Result> results;
+    protected final AtomicInteger sent = new AtomicInteger(), failed = new AtomicInteger();
+    protected final AtomicInteger opening = new AtomicInteger(); // DM opens the bucket has not counted yet
+    protected final Semaphore permits = new Semaphore(CONCURRENCY);
+    protected volatile long waitUntil;
+
+    public Broadcast(DiscordAPI api, Message message, @Nullable Consumer<? super Result> results) {
+        this.api = api;
+        this.body = Json.toJson(message, UnsentMessage.class, null);
+        this.results = results;
+        this.unready();
+    }
+
+    /**
+     * Starts sending, in the background.
+     */
+    public <IUser> Broadcast start(Iterator<IUser> users) {
+        CompletableFuture.runAsync(() -> this.run(users), api.executor()).exceptionally(throwable -> {
+            this.error(throwable);
+            return null;
+        });
+        return this;
+    }
+
+    protected <IUser> void run(Iterator<IUser> users) {
+        final List<CompletableFuture<?>> requests = new ArrayList<>();
+        try {
+            while (users.hasNext()) {
+                final IUser user = users.next();
+                if (user == null) continue;
+                final String id = api.getUserId(user);
+                this.permits.acquire();
+                if (api.getDirectChannels().get(id) == null) this.awaitBucket(); // this one needs opening
+                else this.awaitLimit();
+                requests.add(this.send(id, true, 0).whenComplete((value, throwable) -> this.permits.release()));
+                requests.removeIf(CompletableFuture::isDone);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.error(ex);
+            return;
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+            .whenComplete((value, throwable) -> this.finish());
+    }
+
+    protected void awaitLimit() throws InterruptedException {
+        long wait;
+        while ((wait = waitUntil - System.currentTimeMillis()) > 0) Thread.sleep(wait);
+    }
+
+    /**
+     * Waits while opening a DM would be rate limited, counting the opens that are still in flight.
+     */
+    protected void awaitBucket() throws InterruptedException {
+        while (true) {
+            this.awaitLimit();
+            final RateLimits.Bucket bucket = this.bucket();
+            if (bucket == null || bucket.available() > opening.get()) return;
+            Thread.sleep(Math.max(10, Math.min(bucket.resetsIn(), 1000)));
+        }
+    }
+
+    protected @Nullable RateLimits.Bucket bucket() {
+        return api.getRateLimits().get("POST", "/users/@me/channels");
+    }
+
+    protected CompletableFuture<?> send(String user, boolean cached, int attempt) {
+        final Message message = new Message();
+        message.api = api;
+        message.unready();
+        final boolean opens = api.getDirectChannels().get(user) == null;
+        if (opens) this.opening.incrementAndGet();
+        CompletableFuture<Channel> open;
+        try {
+            open = this.open(user);
+        } catch (Throwable ex) { // reported as this user's result rather than ending the broadcast
+            open = CompletableFuture.failedFuture(ex);
+        }
+        return open.whenComplete((channel, throwable) -> {
+            if (opens) this.opening.decrementAndGet();
+        }).thenCompose(channel -> {
+            if (channel.error() != null) throw channel.error();
+            return this.request(channel.id, message);
+        }).handle((value, throwable) -> {
+            if (throwable != null && throwable.getCause() instanceof DiscordException cause) throwable = cause;
+            final DiscordException error = throwable instanceof DiscordException discord ? discord
+                : throwable != null ? new DiscordException(throwable) : message.error();
+            if (error instanceof RateLimitException limit && attempt < RETRIES) {
+                this.waitUntil = Math.max(waitUntil, System.currentTimeMillis() + limit.getRetryAfter());
+                final Executor delay = CompletableFuture.delayedExecutor(limit.getRetryAfter(), TimeUnit.MILLISECONDS,
+                    api.executor());
+                return CompletableFuture.runAsync(() -> {}, delay)
+                    .thenCompose(nothing -> this.send(user, cached, attempt + 1));
+            }
+            if (cached && error instanceof APIException exception // the stored channel is gone, open it again
+                && exception.getStatusCode() == StatusCode.JSON_ERR_10003) {
+                this.api.getDirectChannels().remove(user);
+                return this.send(user, false, attempt);
+            }
+            if (error != null) this.failed.incrementAndGet();
+            else this.sent.incrementAndGet();
+            this.report(new Result(user, error == null ? message : null, error));
+            return CompletableFuture.completedFuture(null);
+        }).thenCompose(next -> next);
+    }
+
+    protected CompletableFuture<Channel> open(String user) {
+        return api.openDirectChannel(user);
+    }
+
+    protected CompletableFuture<?> request(String channel, Message message) {
+        return api.post("/channels/" + channel + "/messages", body, message);
+    }
+
+    protected void report(Result result) {
+        if (results != null) try {
+            this.results.accept(result);
+        } catch (Throwable ex) {
+            Bot.handle(ex);
+        }
+    }
+
+    public int getSent() {
+        return sent.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * What happened when sending to one user: the message that was sent, or why it could not be.
+     */
+    public record Result(String user_id, @Nullable Message message, @Nullable DiscordException error) {
+
+        public boolean successful() {
+            return error == null;
+        }
+
+    }
+
+}
@@ -73,7 +73,7 @@ public class DeferredList<Type> implements List<Object> {
             this.helper.mapToObject(thing, type, map);
             if (thing instanceof Lazy lazy) lazy.finish();
             this.consumer.accept(thing);
-        }
+        } else if (type.isInstance(object)) this.consumer.accept(type.cast(object));
         return true;
     }
 
@@ -0,0 +1,150 @@
+package mx.kenzie.eris.api.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An open-addressed map from snowflake ids to values, without boxing the keys.
+ * <p>
+ * Zero is used to mark empty slots, which is safe since no snowflake can be zero.
+ * This is not thread-safe: the owner is expected to synchronize access.
+ */
+@SuppressWarnings("unchecked")
+public class LongMap<Type> {
+
+    private long[] keys;
+    private Object[] values;
+    private int size, mask;
+
+    public LongMap() {
+        this(16);
+    }
+
+    public LongMap(int expected) {
+        final int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, expected * 2 - 1)) << 1);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Type get(long key) {
+        if (key == 0) return null;
+        int index = hash(key) & mask;
+        long current;
+        while ((current = keys[index]) != 0) {
+            if (current == key) return (Type) values[index];
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return this.get(key) != null;
+    }
+
+    public Type put(long key, Type value) {
+        if (key == 0) throw new IllegalArgumentException("Zero is not a valid key.");
+        if (value == null) return this.remove(key);
+        int index = hash(key) & mask;
+        long current;
+        while ((current = keys[index]) != 0) {
+            if (current == key) {
+                final Type old = (Type) values[index];
+                this.values[index] = value;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+        if (++size * 4 > keys.length * 3) this.resize(keys.length << 1);
+        return null;
+    }
+
+    public Type remove(long key) {
+        if (key == 0) return null;
+        int index = hash(key) & mask;
+        long current;
+        while ((current = keys[index]) != 0) {
+            if (current == key) {
+                final Type old = (Type) values[index];
+                this.shift(index);
+                this.size--;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private void shift(int gap) { // backward-shift deletion keeps probe chains intact without tombstones
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            final long key = keys[index];
+            if (key == 0) break;
+            final int home = hash(key) & mask;
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                this.keys[gap] = key;
+                this.values[gap] = values[index];
+                gap = index;
+            }
+        }
+        this.keys[gap] = 0;
+        this.values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        final long[] keys = this.keys;
+        final Object[] values = this.values;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+        for (int i = 0; i < keys.length; i++) if (keys[i] != 0) this.put(keys[i], (Type) values[i]);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        this.size = 0;
+    }
+
+    public long[] keys() {
+        final long[] result = new long[size];
+        int count = 0;
+        for (final long key : keys) if (key != 0) result[count++] = key;
+        return result;
+    }
+
+    public List<Type> values() {
+        final List<Type> list = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) if (keys[i] != 0) list.add((Type) values[i]);
+        return list;
+    }
+
+    public void forEach(Visitor<? super Type> action) {
+        for (int i = 0; i < keys.length; i++) if (keys[i] != 0) action.accept(keys[i], (Type) values[i]);
+    }
+
+    public interface Visitor<Type> {
+
+        void accept(long key, Type value);
+
+    }
+
+}
@@ -0,0 +1,259 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.guild.ModifyMember;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.RateLimits;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Applies a change to every member in a stream, e.g. giving everyone a role, as fast as the rate limit allows.
+ * <p>
+ * The mutation is asked what to change for each member (null to leave them alone). It can also return {@link #LATER}
+ * for a member it cannot decide about (e.g. a partial member without roles), who is skipped without being checkpointed
+ * so that a resumed job looks at them again.
+ * Up to {@link #CONCURRENCY} updates are sent at once, but never more than the member update bucket has left;
+ * updates that are rate limited anyway are sent again once the limit has passed, up to {@link #RETRIES} times.
+ * <p>
+ * The id of each member that has been dealt with is written to the checkpoint file, so a job that was stopped
+ * (or crashed) can be started again with the same file and will skip everyone it already did.
+ * This is ready once every member has been dealt with.
+ */
+public class MemberJob extends Lazy {
+
+    public static final ModifyMember LATER = new ModifyMember();
+    public static int CONCURRENCY = 8, RETRIES = 3;
+
+    public final String guild_id;
+    protected final Path checkpoint;
+    protected final Function<? super Member, ? extends ModifyMember> mutation;
+    protected final @Nullable String reason;
+    protected final Set<String> done = ConcurrentHashMap.newKeySet();
+    protected final AtomicInteger completed = new AtomicInteger(), failed = new AtomicInteger(),
+        skipped = new AtomicInteger(), inFlight = new AtomicInteger();
+    protected final Semaphore permits = new Semaphore(CONCURRENCY);
+    protected volatile long started, waitUntil;
+    protected int resumed;
+    protected BufferedWriter writer;
+
+    public MemberJob(DiscordAPI api, String guild, Path checkpoint,
+                     Function<? super Member, ? extends ModifyMember> mutation, @Nullable String reason) {
+        this.api = api;
+        this.guild_id = guild;
+        this.checkpoint = checkpoint;
+        this.mutation = mutation;
+        this.reason = reason;
+        this.unready();
+    }
+
+    /**
+     * A job that gives the role to every member who does not have it.
+     */
+    public static <IRole> MemberJob addRole(DiscordAPI api, String guild, Path checkpoint, IRole role) {
+        final String id = api.getId(role);
+        return new MemberJob(api, guild, checkpoint, member -> {
+            if (member.roles == null) return LATER; // a partial member, whose roles we don't know
+            final List<String> roles = new ArrayList<>(Arrays.asList(member.roles));
+            if (roles.contains(id)) return null;
+            roles.add(id);
+            final ModifyMember modify = new ModifyMember();
+            modify.roles = roles.toArray(new String[0]);
+            return modify;
+        }, null);
+    }
+
+    /**
+     * Starts working through the members, in the background.
+     */
+    public MemberJob start(Iterator<Member> members) {
+        CompletableFuture.runAsync(() -> this.run(members), api.executor()).exceptionally(throwable -> {
+            this.close();
+            this.error(throwable);
+            return null;
+        });
+        return this;
+    }
+
+    protected void run(Iterator<Member> members) {
+        try {
+            if (Files.exists(checkpoint)) for (final String line : Files.readAllLines(checkpoint)) {
+                if (!line.isBlank()) this.done.add(line.trim());
+            }
+            this.writer = Files.newBufferedWriter(checkpoint, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new DiscordException("Unable to read the checkpoint file.", ex);
+        }
+        this.started = System.currentTimeMillis();
+        final List<CompletableFuture<?>> requests = new ArrayList<>();
+        try {
+            while (members.hasNext()) {
+                final Member member = members.next();
+                if (member == null || member.user == null || member.user.id == null) continue;
+                if (done.contains(member.user.id)) {
+                    synchronized (this) {
+                        this.resumed++;
+                    }
+                    continue;
+                }
+                final ModifyMember modify = mutation.apply(member);
+                if (modify == LATER) {
+                    this.skipped.incrementAndGet();
+                    continue;
+                }
+                if (modify == null) {
+                    this.skipped.incrementAndGet();
+                    this.checkpoint(member.user.id);
+                    continue;
+                }
+                this.permits.acquire();
+                this.awaitBucket(member.user.id);
+                requests.add(this.send(member.user.id, modify, 0));
+                requests.removeIf(CompletableFuture::isDone);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.close();
+            this.error(ex);
+            return;
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).whenComplete((value, throwable) -> {
+            this.close();
+            this.finish();
+        });
+    }
+
+    /**
+     * Waits while we are rate limited, or the bucket has no requests left that are not already being sent.
+     */
+    protected void awaitBucket(String user) throws InterruptedException {
+        while (true) {
+            final long now = System.currentTimeMillis();
+            if (waitUntil > now) {
+                Thread.sleep(waitUntil - now);
+                continue;
+            }
+            final RateLimits.Bucket bucket = api.getRateLimits()
+                .get("PATCH", "/guilds/" + guild_id + "/members/" + user);
+            if (bucket == null || bucket.resetsIn() == 0 || bucket.remaining() > inFlight.get()) return;
+            Thread.sleep(Math.max(10, Math.min(bucket.resetsIn(), 1000)));
+        }
+    }
+
+    protected CompletableFuture<?> send(String user, ModifyMember modify, int attempt) {
+        this.inFlight.incrementAndGet();
+        final Member member = new Member();
+        member.api = api;
+        return this.request(user, modify, member).<CompletableFuture<?>>handle((value, throwable) -> {
+            this.inFlight.decrementAndGet();
+            final Throwable error = throwable != null ? throwable : member.error();
+            if (error instanceof RateLimitException limit && attempt < RETRIES) {
+                this.waitUntil = Math.max(waitUntil, System.currentTimeMillis() + limit.getRetryAfter());
+                final Executor delay = CompletableFuture.delayedExecutor(limit.getRetryAfter(), TimeUnit.MILLISECONDS,
+                    api.executor());
+                return CompletableFuture.runAsync(() -> {}, delay)
+                    .thenCompose(nothing -> this.send(user, modify, attempt + 1));
+            }
+            if (error != null) {
+                this.failed.incrementAndGet();
+                Bot.handle(error);
+            } else {
+                this.completed.incrementAndGet();
+                this.checkpoint(user);
+            }
+            this.permits.release();
+            return CompletableFuture.completedFuture(null);
+        }).thenCompose(next -> next);
+    }
+
+    protected CompletableFuture<?> request(String user, ModifyMember modify, Member result) {
+        final String[] headers = reason != null ? new String[] {"X-Audit-Log-Reason", reason} : new String[0];
+        return api.patch("/guilds/" + guild_id + "/members/" + user, Json.toJson(modify, ModifyMember.class, null),
+            result, headers);
+    }
+
+    protected synchronized void checkpoint(String user) {
+        this.done.add(user);
+        if (writer == null) return;
+        try {
+            this.writer.write(user);
+            this.writer.newLine();
+            this.writer.flush(); // so a crash cannot lose members that were already updated
+        } catch (IOException ex) {
+            Bot.handle(ex);
+        }
+    }
+
+    protected synchronized void close() {
+        if (writer == null) return;
+        try {
+            this.writer.close();
+        } catch (IOException ex) {
+            Bot.handle(ex);
+        }
+        this.writer = null;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return how many members the mutation had nothing to change for, or left for later
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return how many members were skipped because the checkpoint says an earlier run already did them
+     */
+    public synchronized int getResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return members dealt with per second, since this run started
+     */
+    public double getThroughput() {
+        if (started == 0) return 0;
+        final long elapsed = System.currentTimeMillis() - started;
+        if (elapsed <= 0) return 0;
+        return (completed.get() + failed.get() + skipped.get()) * 1000.0 / elapsed;
+    }
+
+    /**
+     * @param total how many members there are altogether, e.g. the guild's member count
+     * @return roughly how long the rest will take at the current rate, or null if nothing has been done yet
+     */
+    public @Nullable Duration getETA(int total) {
+        final double rate = this.getThroughput();
+        if (rate <= 0) return null;
+        final int left = total - completed.get() - failed.get() - skipped.get() - this.getResumed();
+        return Duration.ofMillis((long) (Math.max(0, left) * 1000 / rate));
+    }
+
+}
@@ -0,0 +1,169 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.event.guild.member.IdentifyGuildMembers;
+import mx.kenzie.eris.error.DiscordException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The result of a gateway member request (opcode 8).
+ * Discord answers with one or more member chunks that share this request's nonce,
+ * and members are handed over as each chunk arrives rather than once the whole list has been assembled.
+ * <p>
+ * If a consumer was given, members are passed straight to it.
+ * Otherwise, they are held until they are iterated, up to {@link #BUFFER} members at a time.
+ * When the buffer is full the gateway waits up to {@link #BUFFER_WAIT} milliseconds for the reader to make room;
+ * after that the request fails and the members still to come are dropped, rather than being held in memory.
+ * A request without a consumer should always be iterated, and one for a large guild should be read promptly.
+ * <p>
+ * Requests for more ids than Discord takes at once are split, each part with its own nonce,
+ * and this collects the chunks of all of them. This is ready once the final chunk of every part has been received.
+ */
+public class MemberRequest extends Lazy implements Iterable<Member> {
+
+    public static final int MAX_USERS = 100; // ids Discord takes in one request
+    public static int BUFFER = 10000;
+    public static long BUFFER_WAIT = 10000;
+
+    public final String guild_id, nonce;
+    protected final Consumer<? super Member> consumer;
+    protected final BlockingQueue<Member> buffer;
+    protected final Set<String> missing = new HashSet<>();
+    protected final Map<String, int[]> parts = new HashMap<>(); // nonce -> chunks received, chunks expected
+    private volatile boolean complete;
+
+    public MemberRequest(DiscordAPI api, String guild, String nonce, @Nullable Consumer<? super Member> consumer) {
+        this.api = api;
+        this.guild_id = guild;
+        this.nonce = nonce;
+        this.consumer = consumer;
+        this.buffer = consumer == null ? new ArrayBlockingQueue<>(BUFFER) : null;
+        this.parts.put(nonce, new int[] {0, -1});
+    }
+
+    /**
+     * Also collects the chunks sent for this nonce, for a request that had to be split into parts.
+     */
+    public void expect(String nonce) {
+        synchronized (missing) {
+            this.parts.putIfAbsent(nonce, new int[] {0, -1});
+        }
+    }
+
+    /**
+     * Takes the next chunk of this request.
+     *
+     * @return true if this was the final chunk for its nonce
+     */
+    public boolean accept(IdentifyGuildMembers chunk) {
+        if (complete) return true; // cancelled, so the rest are dropped
+        if (chunk.members != null) for (final Member member : chunk.members) {
+            member.api = api;
+            member.guild_id = guild_id;
+            if (member.user != null) member.user.api = api;
+            member.finish();
+            if (consumer != null) try {
+                this.consumer.accept(member);
+            } catch (Throwable ex) {
+                Bot.handle(ex);
+            }
+            else if (!this.offer(member)) return true;
+        }
+        synchronized (missing) {
+            if (chunk.not_found != null) Collections.addAll(missing, chunk.not_found);
+            final int[] part = parts.getOrDefault(chunk.nonce, parts.get(nonce));
+            part[1] = chunk.chunk_count;
+            if (++part[0] < part[1]) return false;
+            for (final int[] other : parts.values()) if (other[1] < 0 || other[0] < other[1]) return true;
+        }
+        this.complete = true;
+        this.finish();
+        return true;
+    }
+
+    private boolean offer(Member member) {
+        try {
+            if (buffer.offer(member, BUFFER_WAIT, TimeUnit.MILLISECONDS)) return true;
+            this.cancel(new DiscordException("Members were not read from the request within " + BUFFER_WAIT + "ms."));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.cancel(ex);
+        }
+        return false;
+    }
+
+    public void cancel(Throwable reason) {
+        this.complete = true;
+        this.error(reason);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * The number of chunks received so far, and the total expected (or -1 until a chunk of every part has arrived).
+     */
+    public int[] progress() {
+        synchronized (missing) {
+            int chunks = 0, expected = 0;
+            for (final int[] part : parts.values()) {
+                chunks += part[0];
+                if (part[1] < 0 || expected < 0) expected = -1;
+                else expected += part[1];
+            }
+            return new int[] {chunks, expected};
+        }
+    }
+
+    /**
+     * The ids that were requested but are not members of the guild.
+     * This is only complete once the request is ready.
+     */
+    public String[] getMissing() {
+        synchronized (missing) {
+            return missing.toArray(new String[0]);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Member> iterator() {
+        if (buffer == null) throw new IllegalStateException("Members are being given to a consumer.");
+        return new Iterator<>() {
+            private Member current;
+
+            @Override
+            public boolean hasNext() {
+                if (current != null) return true;
+                try {
+                    while ((current = buffer.poll(50, TimeUnit.MILLISECONDS)) == null)
+                        if (complete && buffer.isEmpty()) return false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Member next() {
+                if (!this.hasNext()) throw new NoSuchElementException();
+                final Member member = current;
+                this.current = null;
+                return member;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,121 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.message.Attachment;
+import mx.kenzie.eris.api.entity.message.UnsentMessage;
+import mx.kenzie.eris.network.JsonBody;
+import mx.kenzie.eris.utility.JsonWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A message layout that is serialised once and sent many times.
+ * <p>
+ * The prototype message (embeds, components, allowed mentions, etc.) is turned into JSON when the template is made.
+ * Any {@code {{name}}} placeholders in its text are cut out, and filled with the given values when it is sent,
+ * so each send only escapes the values rather than serialising the whole message again.
+ * <pre>{@code
+ * final MessageTemplate template = new MessageTemplate(new Message("Hello {{user}}!", embed));
+ * template.send(channel, Map.of("user", name));
+ * }</pre>
+ * Placeholders can only go in text (content, titles, descriptions, labels, custom ids...), not in numbers or booleans.
+ * A placeholder name is letters, digits, {@code _}, {@code .} and {@code -}, so other text in braces is left alone.
+ * Text that should keep a placeholder as it is (e.g. in a code block) can escape it with a backslash before it.
+ * Messages with files to upload cannot be templates.
+ */
+public class MessageTemplate {
+
+    private static final Pattern KEY = Pattern.compile("[\\w.-]+");
+
+    protected final byte[][] parts; // the utf-8 json either side of each placeholder
+    protected final String[] keys;
+
+    public MessageTemplate(Message prototype) {
+        this(serialise(prototype));
+    }
+
+    /**
+     * A template of some already-written message JSON.
+     * Placeholders are only looked for inside strings.
+     */
+    public MessageTemplate(String json) {
+        final List<String> parts = new ArrayList<>(), keys = new ArrayList<>();
+        final StringBuilder part = new StringBuilder();
+        boolean string = false;
+        for (int i = 0; i < json.length(); i++) {
+            final char c = json.charAt(i);
+            if (c == '"') string = !string;
+            else if (string && c == '\\') {
+                if (json.startsWith("\\\\{{", i)) { // an escaped placeholder, which is kept as it is
+                    part.append("{{");
+                    i += 3;
+                } else if (i + 1 < json.length()) part.append(c).append(json.charAt(++i));
+                continue;
+            } else if (string && json.startsWith("{{", i)) {
+                final int close = json.indexOf("}}", i + 2);
+                final String key = close < 0 ? "" : json.substring(i + 2, close).trim();
+                if (KEY.matcher(key).matches()) {
+                    parts.add(part.toString());
+                    keys.add(key);
+                    part.setLength(0);
+                    i = close + 1;
+                    continue;
+                }
+            }
+            part.append(c);
+        }
+        parts.add(part.toString());
+        this.parts = new byte[parts.size()][];
+        for (int i = 0; i < this.parts.length; i++) this.parts[i] = parts.get(i).getBytes(StandardCharsets.UTF_8);
+        this.keys = keys.toArray(new String[0]);
+    }
+
+    private static String serialise(Message prototype) {
+        if (prototype.attachments != null) for (final Attachment attachment : prototype.attachments)
+            if (attachment != null && attachment.content != null)
+                throw new IllegalArgumentException("A template cannot upload files.");
+        return Json.toJson(prototype, UnsentMessage.class, null);
+    }
+
+    public String[] getPlaceholders() {
+        return keys.clone();
+    }
+
+    /**
+     * Makes the request body, with each placeholder replaced by its value (or nothing, if it has no value).
+     */
+    public JsonBody render(Map<String, ?> values) {
+        final JsonBody body = new JsonBody();
+        final JsonWriter writer = new JsonWriter(body);
+        body.write(parts[0]);
+        for (int i = 0; i < keys.length; i++) {
+            final Object value = values.get(keys[i]);
+            if (value != null) writer.writeEscaped(value.toString());
+            body.write(parts[i + 1]);
+        }
+        return body;
+    }
+
+    public Message send(Channel channel, Map<String, ?> values) {
+        if (channel.api == null) throw DiscordAPI.unlinkedEntity(channel);
+        return this.send(channel.api, channel.id, values);
+    }
+
+    public Message send(DiscordAPI api, String channel, Map<String, ?> values) {
+        final Message message = new Message();
+        message.api = api;
+        message.unready();
+        api.requestJson("POST", "/channels/" + channel + "/messages", this.render(values), message)
+            .exceptionally(message::error).thenAccept(Lazy::finish);
+        return message;
+    }
+
+}
@@ -2,24 +2,41 @@ package mx.kenzie.eris.api.utility;
 
 import mx.kenzie.eris.api.entity.message.Attachment;
 import mx.kenzie.eris.error.DiscordException;
-import mx.kenzie.jupiter.stream.impl.MemoryOutputStream;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URLConnection;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * A multipart body that is streamed when the request is sent, rather than built in memory.
+ * <p>
+ * The section headers are kept as bytes, files are read from disk as they are sent,
+ * and streams are passed through. The content length is known unless a stream's size is unknown.
+ */
 public class MultiBody implements AutoCloseable {
 
-    private final MemoryOutputStream write;
+    private final List<Part> parts = new ArrayList<>();
+    private final ByteArrayOutputStream text = new ByteArrayOutputStream(256); // written since the last file or stream
 
     public MultiBody() {
-        this.write = new MemoryOutputStream(1024, true);
         this.write("");
     }
 
     protected void write(String line) {
-        this.write.write((line + "\n").getBytes());
+        this.text.writeBytes((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void flushText() {
+        if (text.size() == 0) return;
+        this.parts.add(new Part(text.toByteArray(), null, null, text.size()));
+        this.text.reset();
     }
 
     public void sectionMessage(String data) {
@@ -32,6 +49,7 @@ public class MultiBody implements AutoCloseable {
 
     public void finish() {
         this.write("--boundary--");
+        this.flushText();
     }
 
     public void section(String name, String data) {
@@ -52,27 +70,28 @@ public class MultiBody implements AutoCloseable {
         else contentType = "text/plain; charset=UTF-8";
         this.write("Content-Type: " + contentType);
         this.write("");
-        final InputStream stream;
         try {
-            if (attachment.content instanceof InputStream input) stream = input;
+            if (attachment.content instanceof InputStream input) this.writeStream(input, -1);
             else if (attachment.content instanceof URI uri) {
                 final URLConnection connection = uri.toURL().openConnection();
                 connection.connect();
-                stream = connection.getInputStream();
-            } else if (attachment.content instanceof File file) stream = new FileInputStream(file);
-            else stream = new ByteArrayInputStream((attachment.content.toString() + "\r\n")
-                    .getBytes(StandardCharsets.UTF_8));
-            this.writeStream(stream);
+                this.writeStream(connection.getInputStream(), connection.getContentLengthLong());
+            } else if (attachment.content instanceof File file) this.writeFile(file.toPath());
+            else this.text.writeBytes((attachment.content.toString() + "\r\n").getBytes(StandardCharsets.UTF_8));
         } catch (IOException ex) {
             throw new DiscordException(ex);
         }
+        this.write("");
     }
 
-    private void writeStream(InputStream stream) throws IOException {
-        try (stream) {
-            stream.transferTo(write);
-        }
-        this.write("");
+    private void writeStream(InputStream stream, long length) {
+        this.flushText();
+        this.parts.add(new Part(null, null, stream, length));
+    }
+
+    private void writeFile(Path path) throws IOException {
+        this.flushText();
+        this.parts.add(new Part(null, path, null, Files.size(path)));
     }
 
     public void section(String name, File file) {
@@ -82,20 +101,76 @@ public class MultiBody implements AutoCloseable {
         if (key.endsWith(".png")) this.write("Content-Type: image/png");
         else if (key.endsWith(".gif")) this.write("Content-Type: image/gif");
         else this.write("Content-Type: text/plain; charset=UTF-8");
-        try (final InputStream stream = new FileInputStream(file)) {
-            stream.transferTo(write);
+        this.write("");
+        try {
+            this.writeFile(file.toPath());
         } catch (IOException e) {
             throw new DiscordException(e);
         }
+        this.write("");
+    }
+
+    /**
+     * @return the size of the body, or -1 if a stream's size is not known
+     */
+    public long length() {
+        this.flushText();
+        long length = 0;
+        for (final Part part : parts) {
+            if (part.length < 0) return -1;
+            length += part.length;
+        }
+        return length;
+    }
+
+    /**
+     * The body, for sending. Files are only opened once it is subscribed to.
+     * Streams can only be read once, so neither can this if there are any.
+     */
+    public HttpRequest.BodyPublisher publisher() {
+        this.flushText();
+        final HttpRequest.BodyPublisher[] publishers = new HttpRequest.BodyPublisher[parts.size()];
+        try {
+            for (int i = 0; i < publishers.length; i++) publishers[i] = parts.get(i).publisher();
+        } catch (FileNotFoundException ex) {
+            throw new DiscordException(ex);
+        }
+        return HttpRequest.BodyPublishers.concat(publishers);
     }
 
     public InputStream stream() { // this needs to be closed
-        return write.createInputStream();
+        this.flushText();
+        final List<InputStream> streams = new ArrayList<>(parts.size());
+        try {
+            for (final Part part : parts) streams.add(part.open());
+        } catch (IOException ex) {
+            throw new DiscordException(ex);
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
     }
 
     @Override
     public void close() throws Exception {
-        this.write.freeMemory();
+        for (final Part part : parts) if (part.stream != null) part.stream.close();
+        this.parts.clear();
+    }
+
+    private record Part(byte[] bytes, Path file, InputStream stream, long length) {
+
+        HttpRequest.BodyPublisher publisher() throws FileNotFoundException {
+            if (bytes != null) return HttpRequest.BodyPublishers.ofByteArray(bytes);
+            if (file != null) return HttpRequest.BodyPublishers.ofFile(file);
+            final HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> stream);
+            if (length < 0) return publisher;
+            return HttpRequest.BodyPublishers.fromPublisher(publisher, length);
+        }
+
+        InputStream open() throws IOException {
+            if (bytes != null) return new ByteArrayInputStream(bytes);
+            if (file != null) return Files.newInputStream(file);
+            return stream;
+        }
+
     }
 
 }
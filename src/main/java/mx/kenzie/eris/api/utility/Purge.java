@@ -0,0 +1,170 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Snowflake;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.RateLimits;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Deletes a stream of messages from a channel, as quickly as Discord allows.
+ * <p>
+ * Messages newer than {@link #MAX_AGE} are deleted {@link #BATCH_SIZE} at a time with bulk-delete;
+ * older ones (which bulk-delete refuses) are deleted one by one. The age comes from the id, so nothing is fetched.
+ * Ids are read as they are needed (so a history iterator can be passed straight in),
+ * and up to {@link #CONCURRENCY} requests are sent at once. Requests wait while their rate limit bucket is empty,
+ * and rate limited requests are sent again once the limit has passed, up to {@link #RETRIES} times.
+ * <p>
+ * The progress consumer is given this after each request. This is ready once every message has been dealt with.
+ */
+public class Purge extends Lazy {
+
+    public static int BATCH_SIZE = 100, CONCURRENCY = 4, RETRIES = 3;
+    public static Duration MAX_AGE = Duration.ofDays(14).minusMinutes(5); // a little margin for clock differences
+
+    public final String channel_id;
+    protected final @Nullable Consumer<? super Purge> progress;
+    protected final AtomicInteger deleted = new AtomicInteger(), failed = new AtomicInteger(),
+        seen = new AtomicInteger();
+    protected final AtomicInteger inFlight = new AtomicInteger();
+    protected final Semaphore permits = new Semaphore(CONCURRENCY);
+    protected volatile long waitUntil;
+
+    public Purge(DiscordAPI api, String channel, @Nullable Consumer<? super Purge> progress) {
+        this.api = api;
+        this.channel_id = channel;
+        this.progress = progress;
+        this.unready();
+    }
+
+    private static Snowflake snowflake(Object message) {
+        if (message instanceof Snowflake snowflake) return snowflake;
+        return new Snowflake(message.toString());
+    }
+
+    /**
+     * Starts deleting, in the background.
+     */
+    public Purge start(Iterator<?> messages) {
+        CompletableFuture.runAsync(() -> this.run(messages), api.executor()).exceptionally(throwable -> {
+            this.error(throwable);
+            return null;
+        });
+        return this;
+    }
+
+    protected void run(Iterator<?> messages) {
+        final List<CompletableFuture<?>> requests = new ArrayList<>();
+        final List<String> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (messages.hasNext()) {
+                final Object message = messages.next();
+                if (message == null) continue;
+                final Snowflake snowflake = snowflake(message);
+                this.seen.incrementAndGet();
+                if (System.currentTimeMillis() - snowflake.timestamp() < MAX_AGE.toMillis()) {
+                    batch.add(snowflake.id);
+                    if (batch.size() < BATCH_SIZE) continue;
+                    requests.add(this.send(new ArrayList<>(batch)));
+                    batch.clear();
+                } else requests.add(this.send(List.of(snowflake.id)));
+                requests.removeIf(CompletableFuture::isDone);
+            }
+            if (!batch.isEmpty()) requests.add(this.send(batch));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.error(ex);
+            return;
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+            .whenComplete((value, throwable) -> this.finish());
+    }
+
+    protected CompletableFuture<?> send(List<String> ids) throws InterruptedException {
+        this.permits.acquire(); // wait for one of the requests in flight to finish
+        this.awaitBucket(ids);
+        return this.send(ids, 0);
+    }
+
+    /**
+     * Waits while the request would be rate limited, counting the requests that are still in flight.
+     */
+    protected void awaitBucket(List<String> ids) throws InterruptedException {
+        while (true) {
+            final long now = System.currentTimeMillis();
+            if (waitUntil > now) {
+                Thread.sleep(waitUntil - now);
+                continue;
+            }
+            final RateLimits.Bucket bucket = this.bucket(ids);
+            if (bucket == null || bucket.resetsIn() == 0 || bucket.remaining() > inFlight.get()) return;
+            Thread.sleep(Math.max(10, Math.min(bucket.resetsIn(), 1000)));
+        }
+    }
+
+    protected @Nullable RateLimits.Bucket bucket(List<String> ids) {
+        final String path = "/channels/" + channel_id + "/messages/";
+        if (ids.size() == 1) return api.getRateLimits().get("DELETE", path + ids.get(0));
+        return api.getRateLimits().get("POST", path + "bulk-delete");
+    }
+
+    private CompletableFuture<?> send(List<String> ids, int attempt) {
+        final Lazy result = new Lazy() {}; // only here to catch the error, if there is one
+        this.inFlight.incrementAndGet();
+        return this.request(ids, result).<CompletableFuture<?>>handle((value, throwable) -> {
+            this.inFlight.decrementAndGet();
+            if (throwable instanceof CompletionException ex) throwable = ex.getCause();
+            final Throwable error = throwable != null ? throwable : result.error();
+            if (error instanceof RateLimitException limit && attempt < RETRIES) {
+                this.waitUntil = Math.max(waitUntil, System.currentTimeMillis() + limit.getRetryAfter());
+                final Executor delay = CompletableFuture.delayedExecutor(limit.getRetryAfter(), TimeUnit.MILLISECONDS,
+                    api.executor());
+                return CompletableFuture.runAsync(() -> {}, delay).thenCompose(nothing -> this.send(ids, attempt + 1));
+            }
+            if (error != null) this.failed.addAndGet(ids.size());
+            else this.deleted.addAndGet(ids.size());
+            this.permits.release();
+            if (progress != null) try {
+                this.progress.accept(this);
+            } catch (Throwable ex) {
+                Bot.handle(ex);
+            }
+            return CompletableFuture.completedFuture(null);
+        }).thenCompose(next -> next);
+    }
+
+    protected CompletableFuture<?> request(List<String> ids, Lazy result) {
+        if (ids.size() == 1)
+            return api.request("DELETE", "/channels/" + channel_id + "/messages/" + ids.get(0), null, result);
+        final Map<String, Object> body = Map.of("messages", ids);
+        return api.requestJson("POST", "/channels/" + channel_id + "/messages/bulk-delete", body, result);
+    }
+
+    public int getDeleted() {
+        return deleted.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return how many messages have been read so far, including ones still being deleted
+     */
+    public int getSeen() {
+        return seen.get();
+    }
+
+}
@@ -0,0 +1,43 @@
+package mx.kenzie.eris.data.outgoing.gateway;
+
+import mx.kenzie.eris.data.Payload;
+import mx.kenzie.eris.data.outgoing.Outgoing;
+import mx.kenzie.grammar.Name;
+import mx.kenzie.grammar.Optional;
+
+public class RequestMembers extends Outgoing {
+    
+    public final int op = 8;
+    public final @Name("d") Data data = new Data();
+    
+    public RequestMembers() {
+    }
+    
+    public RequestMembers(String guild, String query, int limit) {
+        this.data.guild_id = guild;
+        this.data.query = query;
+        this.data.limit = limit;
+    }
+    
+    public RequestMembers(String guild, String... users) {
+        this.data.guild_id = guild;
+        this.data.user_ids = users;
+    }
+    
+    @Override
+    public boolean verify() {
+        if (data.guild_id == null) return false;
+        if (data.user_ids != null && data.user_ids.length > 100) return false;
+        return (data.query == null) != (data.user_ids == null);
+    }
+    
+    public static class Data extends Payload {
+        public String guild_id;
+        public @Optional String query;
+        public int limit;
+        public @Optional boolean presences;
+        public @Optional String[] user_ids;
+        public @Optional String nonce;
+    }
+    
+}
@@ -0,0 +1,26 @@
+package mx.kenzie.eris.error;
+
+/**
+ * Discord refused a request because a rate limit was reached (HTTP 429).
+ * The request can be tried again after {@link #getRetryAfter()} milliseconds.
+ */
+public class RateLimitException extends APIException {
+
+    protected final long retryAfter;
+    protected final boolean global;
+
+    public RateLimitException(String message, long retryAfter, boolean global) {
+        super(429, message);
+        this.retryAfter = retryAfter;
+        this.global = global;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isGlobal() {
+        return global;
+    }
+
+}
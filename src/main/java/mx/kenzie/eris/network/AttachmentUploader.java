@@ -0,0 +1,139 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.message.Attachment;
+import mx.kenzie.eris.error.DiscordException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Uploads large files to Discord's storage before a message is sent, rather than inside the message request.
+ * <p>
+ * Discord is asked for an upload url for each file, the files are all uploaded at once,
+ * and then the message only has to name the uploaded files.
+ * This happens by itself for files over {@link #THRESHOLD} bytes added with {@code Message#addAttachment(File)}.
+ */
+public class AttachmentUploader {
+
+    public static long THRESHOLD = 8 << 20;
+
+    protected final DiscordAPI api;
+    protected final NetworkController network;
+
+    public AttachmentUploader(DiscordAPI api, NetworkController network) {
+        this.api = api;
+        this.network = network;
+    }
+
+    private static Path path(Attachment attachment) {
+        if (attachment == null) return null;
+        if (attachment.content instanceof File file) return file.toPath();
+        if (attachment.content instanceof Path path) return path;
+        return null;
+    }
+
+    /**
+     * Whether any of these attachments is a file big enough to upload separately.
+     */
+    public boolean shouldUpload(Attachment[] attachments) {
+        if (attachments == null) return false;
+        for (final Attachment attachment : attachments) {
+            final Path path = path(attachment);
+            if (path != null && path.toFile().length() >= THRESHOLD) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Uploads every attachment that is a file over the threshold.
+     * This gives the attachments to send in their place: the uploaded files have an {@code uploaded_filename}
+     * and no content, so sending the message only sends the others. The given attachments are not changed.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Attachment[]> upload(String channel, Attachment[] attachments) {
+        final Attachment[] result = attachments.clone();
+        final List<Integer> files = new ArrayList<>();
+        final List<Map<String, Object>> requests = new ArrayList<>();
+        for (int i = 0; i < attachments.length; i++) {
+            final Attachment attachment = attachments[i];
+            final Path path = path(attachment);
+            if (path == null) continue;
+            final long size = path.toFile().length();
+            if (size < THRESHOLD) continue;
+            final Map<String, Object> request = new HashMap<>();
+            request.put("id", String.valueOf(files.size()));
+            request.put("filename", attachment.filename != null ? attachment.filename : path.getFileName().toString());
+            request.put("file_size", size);
+            requests.add(request);
+            files.add(i);
+        }
+        if (files.isEmpty()) return CompletableFuture.completedFuture(result);
+        return this.requestUploads(channel, Map.of("files", requests))
+            .thenCompose(response -> {
+                final Object list = response.get("attachments");
+                if (!(list instanceof List<?> targets) || targets.size() != files.size())
+                    throw new DiscordException("Discord did not give an upload url for every file.");
+                final CompletableFuture<?>[] uploads = new CompletableFuture[files.size()];
+                for (final Object item : targets) {
+                    if (!(item instanceof Map<?, ?> map)) throw new DiscordException("Discord gave an empty upload.");
+                    final Map<String, Object> target = (Map<String, Object>) map;
+                    final int index = index(target.get("id"), uploads.length);
+                    if (index < 0 || uploads[index] != null || target.get("upload_url") == null
+                        || target.get("upload_filename") == null)
+                        throw new DiscordException("Discord gave an upload that does not match a file: " + target);
+                    final int position = files.get(index);
+                    final Attachment attachment = attachments[position];
+                    final Path path = path(attachment);
+                    uploads[index] = this.put(String.valueOf(target.get("upload_url")), path).thenRun(() -> {
+                        final Attachment uploaded = new Attachment();
+                        uploaded.id = attachment.id;
+                        uploaded.filename = attachment.filename != null
+                            ? attachment.filename : path.getFileName().toString();
+                        uploaded.description = attachment.description;
+                        uploaded.content_type = attachment.content_type;
+                        uploaded.uploaded_filename = String.valueOf(target.get("upload_filename"));
+                        result[position] = uploaded;
+                    });
+                }
+                return CompletableFuture.allOf(uploads).thenApply(done -> result);
+            });
+    }
+
+    /**
+     * @return the index of the file Discord's upload is for, or -1 if it is not one of them
+     */
+    private static int index(Object id, int count) {
+        final int index;
+        try {
+            index = id instanceof Number number ? number.intValue() : Integer.parseInt(String.valueOf(id));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+        return index >= 0 && index < count ? index : -1;
+    }
+
+    protected CompletableFuture<Map<String, Object>> requestUploads(String channel, Map<String, Object> body) {
+        return api.requestJson("POST", "/channels/" + channel + "/attachments", body, new HashMap<>());
+    }
+
+    protected CompletableFuture<Void> put(String url, Path path) {
+        final HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url)).PUT(HttpRequest.BodyPublishers.ofFile(path)).build();
+        } catch (FileNotFoundException ex) {
+            return CompletableFuture.failedFuture(new DiscordException(ex));
+        }
+        return network.getClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+            if (response.statusCode() / 100 != 2)
+                throw new DiscordException("Uploading " + path.getFileName() + " failed: " + response.statusCode());
+        });
+    }
+
+}
@@ -0,0 +1,103 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.utility.LongMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Remembers the DM channel for each user, so opening a DM with someone the bot has messaged before
+ * does not need a request. A user's DM channel never changes, so entries are kept until they fail.
+ * <p>
+ * With a file, the channels are also kept between restarts: they are read by {@link #load()}
+ * and written by {@link #flush()} (which the bot runs periodically) when something has changed.
+ */
+public class DirectChannelStore {
+
+    public static final int MAGIC = 0x45524944, VERSION = 1;
+    public static long INTERVAL = 30000;
+
+    protected final @Nullable Path path;
+    protected final LongMap<Long> channels = new LongMap<>();
+    private volatile boolean dirty;
+
+    public DirectChannelStore(@Nullable Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the stored channels, if there are any.
+     */
+    public synchronized void load() {
+        if (path == null || !Files.isRegularFile(path)) return;
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) return;
+            final int size = input.readInt();
+            for (int i = 0; i < size; i++) this.channels.put(input.readLong(), input.readLong());
+        } catch (IOException ex) {
+            Bot.handle(ex);
+        }
+    }
+
+    /**
+     * @return the user's DM channel id, or null if it is not known
+     */
+    public synchronized @Nullable String get(String user) {
+        final Long channel = channels.get(Long.parseLong(user));
+        return channel == null ? null : channel.toString();
+    }
+
+    public synchronized void put(String user, String channel) {
+        final long value = Long.parseLong(channel);
+        final Long previous = channels.put(Long.parseLong(user), value);
+        if (previous == null || previous != value) this.dirty = true;
+    }
+
+    /**
+     * Forgets the user's channel, e.g. when Discord says it no longer exists.
+     */
+    public synchronized void remove(String user) {
+        if (channels.remove(Long.parseLong(user)) != null) this.dirty = true;
+    }
+
+    public synchronized int size() {
+        return channels.size();
+    }
+
+    /**
+     * Writes the channels if they have changed since the last flush.
+     * The file is replaced whole, so a crash leaves either the old or the new version.
+     */
+    public synchronized void flush() {
+        if (path == null || !dirty) return;
+        this.dirty = false;
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(channels.size());
+            for (final long user : channels.keys()) {
+                output.writeLong(user);
+                output.writeLong(channels.get(user));
+            }
+            output.flush();
+            stream.getFD().sync();
+        } catch (IOException ex) {
+            this.dirty = true;
+            Bot.handle(ex);
+            return;
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            this.dirty = true;
+            Bot.handle(ex);
+        }
+    }
+
+}
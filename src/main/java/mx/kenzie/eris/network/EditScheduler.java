@@ -0,0 +1,90 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.message.UnsentMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps at most one edit request in flight for each message.
+ * <p>
+ * Edits made while one is being sent are not sent one by one: only the latest is sent, once the first has finished,
+ * and every edit it replaced gets its result. Messages that are edited many times a second
+ * (progress bars, counters) then use as few requests as the rate limit allows, and always end up in the latest state.
+ */
+public class EditScheduler {
+
+    protected final DiscordAPI api;
+    protected final Map<String, Slot> slots = new HashMap<>();
+
+    public EditScheduler(DiscordAPI api) {
+        this.api = api;
+    }
+
+    public Message edit(Message message) {
+        message.unready();
+        final String body = Json.toJson(message, UnsentMessage.class, null);
+        final String path = "/channels/" + message.channel_id + "/messages/" + message.id;
+        synchronized (this) {
+            final Slot slot = slots.computeIfAbsent(path, key -> new Slot());
+            slot.body = body;
+            slot.waiting.add(message);
+            if (!slot.sending) this.send(path, slot);
+        }
+        return message;
+    }
+
+    /**
+     * @return the number of messages with an edit being sent
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    protected synchronized void send(String path, Slot slot) {
+        final String body = slot.body;
+        final List<Message> waiting = slot.waiting;
+        slot.body = null;
+        slot.waiting = new ArrayList<>();
+        slot.sending = true;
+        final Message result = new Message();
+        result.api = api;
+        result.unready();
+        this.request(path, body, result).whenComplete((value, throwable) -> {
+            for (final Message message : waiting) {
+                if (throwable != null) message.error(throwable);
+                else if (result.error() != null) message.error(result.error());
+                else {
+                    this.api.clone(result, message);
+                    message.finish();
+                }
+            }
+            synchronized (this) {
+                if (!slot.waiting.isEmpty()) this.send(path, slot); // only the latest edit made meanwhile
+                else {
+                    slot.sending = false;
+                    this.slots.remove(path);
+                }
+            }
+        });
+    }
+
+    protected CompletableFuture<Message> request(String path, String body, Message result) {
+        return api.patch(path, body, result);
+    }
+
+    protected static class Slot {
+
+        protected String body;
+        protected List<Message> waiting = new ArrayList<>();
+        protected boolean sending;
+
+    }
+
+}
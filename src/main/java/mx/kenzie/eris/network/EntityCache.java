@@ -14,6 +14,7 @@ public class EntityCache {
     protected final Map<String, SoftReference<Snowflake>> map;
     public Set<Class<? extends Snowflake>> permitted = new HashSet<>();
     protected boolean shouldCache;
+    protected Snapshot snapshot;
     
     @SafeVarargs
     public EntityCache(Class<? extends Snowflake>... permitted) {
@@ -29,6 +30,29 @@ public class EntityCache {
         this.map = map;
     }
     
+    public void setShouldCache(boolean shouldCache) {
+        this.shouldCache = shouldCache;
+    }
+    
+    /**
+     * Entities missing from the cache will be looked for in the snapshot, and stored entities are written to it.
+     * This turns caching on.
+     */
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        if (snapshot != null) this.shouldCache = true;
+    }
+    
+    protected Snowflake restore(String id) {
+        if (snapshot == null || id == null) return null;
+        final Snowflake entity = snapshot.read(id);
+        if (entity == null) return null;
+        synchronized (map) {
+            this.map.put(id, new SoftReference<>(entity));
+        }
+        return entity;
+    }
+    
     @SuppressWarnings("unchecked")
     public <Type extends Snowflake> Type getOrCreate(String id, Class<Type> type) {
         if (!shouldCache) return helper.createObject(type);
@@ -37,7 +61,11 @@ public class EntityCache {
             reference = map.get(id);
         }
         if (reference == null || reference.get() == null) {
+            final Snowflake restored = this.restore(id);
+            if (type.isInstance(restored)) return (Type) restored;
             final Type thing = helper.createObject(type);
+            if (thing == null || id == null) return thing;
+            thing.id = id;
             this.store(thing);
             return thing;
         }
@@ -50,6 +78,7 @@ public class EntityCache {
         synchronized (map) {
             this.map.put(entity.id, new SoftReference<>(entity));
         }
+        if (snapshot != null) this.snapshot.entity(entity);
     }
     
     @SuppressWarnings("unchecked")
@@ -60,7 +89,10 @@ public class EntityCache {
             reference = map.get(id);
         }
         if (reference == null || reference.get() == null) {
-            this.store(type);
+            final Snowflake restored = this.restore(id);
+            if (type.getClass().isInstance(restored)) return (Type) restored;
+            if (type.id == null) type.id = id; // a template is only cached once it has an id
+            if (type.id != null) this.store(type);
             return type;
         }
         return (Type) reference.get();
@@ -73,8 +105,8 @@ public class EntityCache {
         synchronized (map) {
             reference = map.get(id);
         }
-        if (reference == null) return null;
-        final Entity entity = reference.get();
+        final Entity entity = reference == null ? null : reference.get();
+        if (entity == null) return (Type) this.restore(id);
         return (Type) entity;
     }
     
@@ -0,0 +1,147 @@
+package mx.kenzie.eris.network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.command.Option;
+import mx.kenzie.eris.api.entity.command.callback.Autocomplete;
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.magic.InteractionType;
+import mx.kenzie.eris.error.DiscordException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Receives interactions from Discord as HTTP requests (the application's "interactions endpoint url")
+ * rather than over the gateway.
+ * <p>
+ * Requests are checked against the application's Ed25519 public key and rejected if the signature is wrong.
+ * Interactions go to the bot's questions, component router and command router, like ones from the gateway,
+ * and the first response is sent back as the HTTP reply, saving the separate callback request.
+ * If there is still no response {@link #DEADLINE} milliseconds after the request arrived (Discord allows three seconds),
+ * the interaction is deferred, and later replies edit the deferred response.
+ * <p>
+ * This does not call listeners registered for {@link Interaction} events.
+ */
+public class InteractionServer implements AutoCloseable {
+
+    public static long DEADLINE = 2500;
+    private static final byte[] KEY_PREFIX = HexFormat.of().parseHex("302a300506032b6570032100"); // X.509 header for a raw Ed25519 key
+    private static final byte[] PONG = "{\"type\":1}".getBytes(StandardCharsets.UTF_8);
+
+    protected final Bot bot;
+    protected final DiscordAPI api;
+    protected final PublicKey key;
+    protected HttpServer server;
+
+    public InteractionServer(Bot bot, String publicKey) {
+        this.bot = bot;
+        this.api = bot.getAPI();
+        try {
+            final byte[] raw = HexFormat.of().parseHex(publicKey.trim());
+            final byte[] encoded = new byte[KEY_PREFIX.length + raw.length];
+            System.arraycopy(KEY_PREFIX, 0, encoded, 0, KEY_PREFIX.length);
+            System.arraycopy(raw, 0, encoded, KEY_PREFIX.length, raw.length);
+            this.key = KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException | IllegalArgumentException ex) {
+            throw new DiscordException("Invalid application public key.", ex);
+        }
+    }
+
+    public void start(InetSocketAddress address, String path) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(path, this::handle);
+        this.server.setExecutor(bot.executor);
+        this.server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) this.server.stop(0);
+    }
+
+    /**
+     * Checks a request's signature, which covers the timestamp header followed by the body.
+     */
+    public boolean verify(String signature, String timestamp, byte[] body) {
+        if (signature == null || timestamp == null) return false;
+        try {
+            final Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(key);
+            verifier.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            verifier.update(body);
+            return verifier.verify(HexFormat.of().parseHex(signature));
+        } catch (GeneralSecurityException | IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = exchange.getRequestBody().readAllBytes();
+            final String signature = exchange.getRequestHeaders().getFirst("X-Signature-Ed25519");
+            final String timestamp = exchange.getRequestHeaders().getFirst("X-Signature-Timestamp");
+            if (!this.verify(signature, timestamp, body)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            final Interaction interaction = api.makeEntity(Interaction.class, new ByteArrayInputStream(body));
+            final byte[] reply;
+            if (interaction.type == InteractionType.PING) reply = PONG;
+            else reply = this.respond(interaction).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, reply.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(reply);
+            }
+        } catch (Throwable ex) {
+            Bot.handle(ex);
+        }
+    }
+
+    protected String respond(Interaction interaction) throws InterruptedException {
+        final CompletableFuture<String> inline = new CompletableFuture<>();
+        interaction.inline = inline;
+        this.bot.executor.execute(() -> {
+            try {
+                this.bot.interact(interaction);
+            } catch (Throwable ex) {
+                Bot.handle(ex);
+            }
+        });
+        try { // a handler may return straight away and answer later, so only the answer is waited for
+            inline.get(DEADLINE, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+        }
+        if (!inline.isDone()) synchronized (interaction) { // still no answer at the deadline
+            if (interaction.type == InteractionType.APPLICATION_COMMAND_AUTOCOMPLETE) {
+                if (!interaction.alreadyResponded) interaction.respond(new Autocomplete(new Option.Choice[0]));
+            } else interaction.defer();
+        }
+        return inline.join();
+    }
+
+}
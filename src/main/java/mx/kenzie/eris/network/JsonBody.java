@@ -0,0 +1,249 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.utility.JsonWriter;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request body, written as UTF-8 straight into pooled buffers.
+ * <p>
+ * Text is encoded as it is appended, so there is no intermediate byte array, and the length is known when the request
+ * is sent. Maps, lists and payloads are written in by {@link JsonWriter} without a string of the whole body;
+ * already-written JSON (e.g. a message serialised by argo with its type) is only encoded here.
+ * <p>
+ * The buffers go back to the pool when the body is closed, which the network controller does once the client has
+ * answered, and only after everything that was sending it has finished (or cancelled).
+ * A body can only be sent once.
+ */
+public class JsonBody implements Appendable, AutoCloseable {
+
+    public static int CHUNK = 8192, POOL_SIZE = 64;
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    protected final List<ByteBuffer> buffers = new ArrayList<>(2);
+    protected ByteBuffer current;
+    protected long length;
+    private char high; // the first half of a surrogate pair, waiting for the second
+    private boolean released;
+    private int sending; // subscribers that have not finished reading
+
+    public static JsonBody of(Object value) {
+        final JsonBody body = new JsonBody();
+        new JsonWriter(body).write(value);
+        return body;
+    }
+
+    /**
+     * A body of some already-written JSON.
+     */
+    public static JsonBody of(String json) {
+        final JsonBody body = new JsonBody();
+        body.append(json);
+        return body;
+    }
+
+    private static ByteBuffer take() {
+        final ByteBuffer buffer = POOL.poll();
+        if (buffer == null) return ByteBuffer.allocate(CHUNK);
+        POOLED.decrementAndGet();
+        return buffer;
+    }
+
+    private void put(int value) {
+        if (current == null || !current.hasRemaining()) {
+            this.current = take();
+            this.buffers.add(current);
+        }
+        this.current.put((byte) value);
+        this.length++;
+    }
+
+    public JsonBody write(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (current == null || !current.hasRemaining()) {
+                this.current = take();
+                this.buffers.add(current);
+            }
+            final int count = Math.min(current.remaining(), bytes.length - offset);
+            this.current.put(bytes, offset, count);
+            offset += count;
+        }
+        this.length += bytes.length;
+        return this;
+    }
+
+    @Override
+    public JsonBody append(char c) {
+        if (high != 0) {
+            final char first = high;
+            this.high = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int point = Character.toCodePoint(first, c);
+                this.put(0xF0 | point >> 18);
+                this.put(0x80 | point >> 12 & 0x3F);
+                this.put(0x80 | point >> 6 & 0x3F);
+                this.put(0x80 | point & 0x3F);
+                return this;
+            }
+            this.put('?'); // an unpaired surrogate
+        }
+        if (c < 0x80) this.put(c);
+        else if (c < 0x800) {
+            this.put(0xC0 | c >> 6);
+            this.put(0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c)) this.high = c;
+        else if (Character.isLowSurrogate(c)) this.put('?');
+        else {
+            this.put(0xE0 | c >> 12);
+            this.put(0x80 | c >> 6 & 0x3F);
+            this.put(0x80 | c & 0x3F);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonBody append(CharSequence text) {
+        return this.append(text, 0, text.length());
+    }
+
+    @Override
+    public JsonBody append(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) this.append(text.charAt(i));
+        return this;
+    }
+
+    public long length() {
+        return length + (high != 0 ? 1 : 0);
+    }
+
+    public HttpRequest.BodyPublisher publisher() {
+        if (high != 0) {
+            this.high = 0;
+            this.put('?');
+        }
+        return new Publisher();
+    }
+
+    /**
+     * Gives the buffers back to the pool, once nothing is reading them. The body cannot be used after this.
+     */
+    @Override
+    public synchronized void close() {
+        if (released) return;
+        this.released = true;
+        if (sending == 0) this.recycle();
+    }
+
+    private synchronized void finished() {
+        if (--sending == 0 && released) this.recycle();
+    }
+
+    private void recycle() {
+        for (final ByteBuffer buffer : buffers) {
+            if (POOLED.incrementAndGet() > POOL_SIZE) {
+                POOLED.decrementAndGet();
+                break;
+            }
+            POOL.offer(buffer.clear());
+        }
+        this.buffers.clear();
+        this.current = null;
+    }
+
+    protected class Publisher implements HttpRequest.BodyPublisher {
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            final ByteBuffer[] views;
+            synchronized (JsonBody.this) {
+                if (released) {
+                    subscriber.onSubscribe(new Subscription(subscriber, new ByteBuffer[0], null));
+                    subscriber.onError(new IllegalStateException("This body has already been sent."));
+                    return;
+                }
+                views = new ByteBuffer[buffers.size()];
+                for (int i = 0; i < views.length; i++) views[i] = buffers.get(i).duplicate().flip();
+                sending++;
+            }
+            subscriber.onSubscribe(new Subscription(subscriber, views, JsonBody.this::finished));
+        }
+
+    }
+
+    protected static class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ByteBuffer[] views;
+        private final Runnable release;
+        private int index;
+        private long demand;
+        private boolean emitting, done;
+
+        Subscription(Flow.Subscriber<? super ByteBuffer> subscriber, ByteBuffer[] views, Runnable release) {
+            this.subscriber = subscriber;
+            this.views = views;
+            this.release = release;
+        }
+
+        @Override
+        public void request(long count) {
+            if (count < 1) {
+                this.cancel();
+                this.subscriber.onError(new IllegalArgumentException("Must request at least one buffer."));
+                return;
+            }
+            synchronized (this) {
+                this.demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+                if (emitting) return; // the loop below is already running further up the stack
+                this.emitting = true;
+            }
+            while (true) {
+                final ByteBuffer next;
+                synchronized (this) {
+                    if (done || (demand == 0 && index < views.length)) {
+                        this.emitting = false;
+                        return;
+                    }
+                    if (index == views.length) {
+                        this.done = true;
+                        next = null;
+                    } else {
+                        this.demand--;
+                        next = views[index++];
+                    }
+                }
+                if (next == null) {
+                    this.subscriber.onComplete();
+                    if (release != null) this.release.run();
+                    return;
+                }
+                this.subscriber.onNext(next);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (done) return;
+                this.done = true;
+            }
+            if (release != null) this.release.run();
+        }
+
+    }
+
+}
@@ -0,0 +1,287 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.api.utility.LongMap;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guild members as they were last seen on the gateway (guild create, member add/update/remove and member chunks).
+ * <p>
+ * Members are kept in a compact form: ids, roles and timestamps are primitives,
+ * and each user is held once no matter how many guilds they share with the bot.
+ * Use {@link Entry#toMember()} to get a regular (ready) member object.
+ */
+public class MemberCache {
+
+    protected final LongMap<LongMap<Entry>> guilds = new LongMap<>();
+    protected final LongMap<Shared> users = new LongMap<>();
+    protected final DiscordAPI api;
+    protected boolean shouldCache = true;
+    protected Snapshot snapshot;
+
+    public MemberCache(DiscordAPI api) {
+        this.api = api;
+    }
+
+    private static long id(String id) {
+        if (id == null) return 0;
+        return Long.parseLong(id);
+    }
+
+    private static long epoch(String timestamp) {
+        if (timestamp == null) return 0;
+        return DiscordAPI.getInstant(timestamp).toEpochMilli();
+    }
+
+    private static String timestamp(long epoch) {
+        if (epoch == 0) return null;
+        return DiscordAPI.getTimestamp(Instant.ofEpochMilli(epoch));
+    }
+
+    public void setShouldCache(boolean shouldCache) {
+        this.shouldCache = shouldCache;
+        if (!shouldCache) this.clear();
+    }
+
+    public boolean shouldCache() {
+        return shouldCache;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public long[] getGuilds() {
+        synchronized (guilds) {
+            return guilds.keys();
+        }
+    }
+
+    public Entry get(long guild, long user) {
+        synchronized (guilds) {
+            final LongMap<Entry> members = guilds.get(guild);
+            if (members == null) return null;
+            return members.get(user);
+        }
+    }
+
+    public Entry get(String guild, String user) {
+        if (guild == null || user == null) return null;
+        return this.get(id(guild), id(user));
+    }
+
+    public List<Entry> getMembers(long guild) {
+        synchronized (guilds) {
+            final LongMap<Entry> members = guilds.get(guild);
+            if (members == null) return new ArrayList<>();
+            return members.values();
+        }
+    }
+
+    public int size(long guild) {
+        synchronized (guilds) {
+            final LongMap<Entry> members = guilds.get(guild);
+            return members == null ? 0 : members.size();
+        }
+    }
+
+    public User getUser(long id) {
+        synchronized (guilds) {
+            final Shared shared = users.get(id);
+            return shared == null ? null : shared.user;
+        }
+    }
+
+    public void store(String guild, Member... members) {
+        this.store(guild, false, members);
+    }
+
+    /**
+     * Stores members from a snapshot. These are kept until they are seen again (or not) on the gateway,
+     * see {@link #reconcile(String)}.
+     */
+    void restore(String guild, Member member) {
+        this.store(guild, true, member);
+    }
+
+    private void store(String guild, boolean restored, Member... members) {
+        if (!shouldCache || guild == null || members == null) return;
+        final long key = id(guild);
+        synchronized (guilds) {
+            LongMap<Entry> map = guilds.get(key);
+            if (map == null) guilds.put(key, map = new LongMap<>(members.length));
+            for (final Member member : members) {
+                if (member == null || !member.isValid()) continue;
+                final long id = member.user.id();
+                final Entry previous = map.get(id);
+                final User user = previous != null ? previous.user : this.share(member.user);
+                if (previous != null) this.merge(user, member.user);
+                final Entry entry = new Entry(key, user, member, previous, restored);
+                map.put(id, entry);
+                if (snapshot != null && !restored) this.snapshot.member(entry);
+            }
+        }
+    }
+
+    /**
+     * Drops the guild's members that were restored from a snapshot and have not been seen since.
+     * This is done once the whole member list has been received, since anyone still missing has left.
+     */
+    public void reconcile(String guild) {
+        if (guild == null) return;
+        final long key = id(guild);
+        synchronized (guilds) {
+            final LongMap<Entry> map = guilds.get(key);
+            if (map == null) return;
+            for (final Entry entry : map.values()) {
+                if (!entry.restored) continue;
+                map.remove(entry.id);
+                this.release(entry.id);
+                if (snapshot != null) this.snapshot.removeMember(key, entry.id);
+            }
+        }
+    }
+
+    public void remove(String guild, User user) {
+        if (guild == null || user == null || user.id == null) return;
+        final long key = id(guild), id = user.id();
+        synchronized (guilds) {
+            final LongMap<Entry> map = guilds.get(key);
+            if (map == null) return;
+            if (map.remove(id) == null) return;
+            this.release(id);
+            if (snapshot != null) this.snapshot.removeMember(key, id);
+        }
+    }
+
+    public void removeGuild(String guild) {
+        if (guild == null) return;
+        synchronized (guilds) {
+            final LongMap<Entry> map = guilds.remove(id(guild));
+            if (map == null) return;
+            for (final long user : map.keys()) this.release(user);
+            if (snapshot != null) this.snapshot.removeGuild(id(guild));
+        }
+    }
+
+    public void clear() {
+        synchronized (guilds) {
+            this.guilds.clear();
+            this.users.clear();
+        }
+    }
+
+    private User share(User user) {
+        final long id = user.id();
+        final Shared shared = users.get(id);
+        if (shared != null) {
+            shared.references++;
+            this.merge(shared.user, user);
+            return shared.user;
+        }
+        if (user.api == null) user.api = api;
+        user.finish();
+        this.users.put(id, new Shared(user));
+        return user;
+    }
+
+    private void release(long id) {
+        final Shared shared = users.get(id);
+        if (shared != null && --shared.references < 1) this.users.remove(id);
+    }
+
+    private void merge(User target, User source) {
+        if (target == source) return;
+        synchronized (target) {
+            if (source.username != null) target.username = source.username;
+            if (source.discriminator != null) target.discriminator = source.discriminator;
+            if (source.global_name != null) target.global_name = source.global_name;
+            if (source.avatar != null) target.avatar = source.avatar;
+            target.public_flags = source.public_flags;
+            target.bot = source.bot;
+        }
+    }
+
+    protected static class Shared {
+
+        protected final User user;
+        protected int references = 1;
+
+        protected Shared(User user) {
+            this.user = user;
+        }
+
+    }
+
+    /**
+     * A compact, immutable snapshot of a guild member.
+     * Updates replace the entry rather than changing it.
+     */
+    public static final class Entry {
+
+        public final long guild, id;
+        public final User user;
+        public final long[] roles;
+        public final long joined, premium, timeout;
+        public final String nick, avatar;
+        public final boolean pending, deaf, mute;
+        /**
+         * Whether this came from a snapshot, rather than the gateway, so it may be out of date.
+         */
+        public final boolean restored;
+
+        Entry(long guild, User user, Member member, Entry previous, boolean restored) {
+            this.guild = guild;
+            this.id = user.id();
+            this.user = user;
+            if (member.roles != null) {
+                this.roles = new long[member.roles.length];
+                for (int i = 0; i < roles.length; i++) roles[i] = id(member.roles[i]);
+            } else this.roles = previous != null ? previous.roles : new long[0];
+            this.joined = member.joined_at != null || previous == null ? epoch(member.joined_at) : previous.joined;
+            this.premium = epoch(member.premium_since);
+            this.timeout = epoch(member.communication_disabled_until);
+            this.nick = member.nick;
+            this.avatar = member.avatar;
+            this.pending = member.pending;
+            this.deaf = member.deaf != null ? member.deaf : previous != null && previous.deaf;
+            this.mute = member.mute != null ? member.mute : previous != null && previous.mute;
+            this.restored = restored;
+        }
+
+        public boolean hasRole(long role) {
+            for (final long value : roles) if (value == role) return true;
+            return false;
+        }
+
+        public boolean isTimedOut() {
+            return timeout > System.currentTimeMillis();
+        }
+
+        public Member toMember() {
+            final Member member = new Member();
+            member.api = user.api;
+            member.user = user;
+            member.guild_id = Long.toString(guild);
+            member.roles = new String[roles.length];
+            for (int i = 0; i < roles.length; i++) member.roles[i] = Long.toString(roles[i]);
+            member.joined_at = timestamp(joined);
+            member.premium_since = timestamp(premium);
+            member.communication_disabled_until = timestamp(timeout);
+            member.nick = nick;
+            member.avatar = avatar;
+            member.pending = pending;
+            member.deaf = deaf;
+            member.mute = mute;
+            member.finish();
+            return member;
+        }
+
+    }
+
+}
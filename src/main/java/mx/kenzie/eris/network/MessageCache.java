@@ -0,0 +1,514 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.api.entity.message.Attachment;
+import mx.kenzie.eris.api.event.Ready;
+import mx.kenzie.eris.api.event.Resumed;
+import mx.kenzie.eris.api.event.channel.DeleteChannel;
+import mx.kenzie.eris.api.event.message.BulkDeleteMessage;
+import mx.kenzie.eris.api.event.message.DeleteMessage;
+import mx.kenzie.eris.api.event.message.ReceiveMessage;
+import mx.kenzie.eris.api.event.message.UpdateMessage;
+import mx.kenzie.eris.api.event.thread.DeleteThread;
+import mx.kenzie.eris.api.utility.LongMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent messages from each channel, so that edit and delete events
+ * (which carry only ids or partial data) can say what the message was before.
+ * <p>
+ * Messages are stored byte-encoded rather than as objects, up to a fixed number per channel.
+ * There is also a byte budget for the whole cache: once it is exceeded, the oldest messages
+ * (from any channel) are dropped first.
+ * <p>
+ * Each channel's messages are ordered by id (and so by time). While the gateway is connected,
+ * the cache knows the point after which it has seen every message in a channel, so history queries
+ * over that window can be answered without a request; see {@link #query(long, long, long, long, int)}.
+ */
+public class MessageCache {
+
+    public static int CHANNEL_SIZE = 100;
+    public static long BUDGET = 32L << 20;
+
+    protected final LongMap<Ring> channels = new LongMap<>();
+    protected final DiscordAPI api;
+    protected int channelSize;
+    protected long budget, bytes;
+    protected boolean shouldCache = true, connected;
+    private long[] orderChannels = new long[64], orderIds = new long[64];
+    private int orderHead, orderSize, live;
+
+    public MessageCache(DiscordAPI api) {
+        this(api, CHANNEL_SIZE, BUDGET);
+    }
+
+    public MessageCache(DiscordAPI api, int channelSize, long budget) {
+        this.api = api;
+        this.channelSize = channelSize;
+        this.budget = budget;
+    }
+
+    private static long id(String id) {
+        if (id == null) return 0;
+        return Long.parseLong(id);
+    }
+
+    private static long epoch(String timestamp) {
+        if (timestamp == null) return 0;
+        return DiscordAPI.getInstant(timestamp).toEpochMilli();
+    }
+
+    private static String timestamp(long epoch) {
+        if (epoch == 0) return null;
+        return DiscordAPI.getTimestamp(Instant.ofEpochMilli(epoch));
+    }
+
+    private static byte[] bytes(String string) {
+        if (string == null) return null;
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void put(ByteBuffer buffer, byte[] string) {
+        if (string == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private static String get(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) return null;
+        final String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    public synchronized void setShouldCache(boolean shouldCache) {
+        this.shouldCache = shouldCache;
+        if (!shouldCache) this.clear();
+    }
+
+    public synchronized void setLimits(int channelSize, long budget) {
+        this.clear();
+        this.channelSize = channelSize;
+        this.budget = budget;
+    }
+
+    public synchronized long size() {
+        return bytes;
+    }
+
+    public synchronized int count() {
+        return live;
+    }
+
+    public synchronized Entry get(long channel, long id) {
+        final Ring ring = channels.get(channel);
+        if (ring == null) return null;
+        final byte[] data = ring.messages.get(id);
+        if (data == null) return null;
+        return new Entry(channel, id, data);
+    }
+
+    public Entry get(String channel, String id) {
+        if (channel == null || id == null) return null;
+        return this.get(id(channel), id(id));
+    }
+
+    /**
+     * Applies a gateway event to the cache.
+     * This is run before the event's listeners, so that edit and delete events can be given
+     * the version of the message that was stored beforehand.
+     */
+    public void update(Object event) {
+        if (event instanceof ReceiveMessage message) this.store(message, message.guild_id);
+        else if (event instanceof UpdateMessage message) message.previous = this.edit(message, message.guild_id);
+        else if (event instanceof DeleteMessage message) message.previous = this.remove(message.channel_id, message.id);
+        else if (event instanceof BulkDeleteMessage bulk && bulk.ids != null) {
+            final List<Entry> list = new ArrayList<>(bulk.ids.length);
+            for (final String id : bulk.ids) {
+                final Entry entry = this.remove(bulk.channel_id, id);
+                if (entry != null) list.add(entry);
+            }
+            bulk.previous = list.toArray(new Entry[0]);
+        } else if (event instanceof DeleteChannel channel && channel.id != null) this.removeChannel(id(channel.id));
+        else if (event instanceof DeleteThread thread && thread.id != null) this.removeChannel(id(thread.id));
+        else if (event instanceof Ready) this.connect(false);
+        else if (event instanceof Resumed) this.connect(true);
+    }
+
+    /**
+     * Marks the cache as connected. A new (not resumed) session may have missed messages,
+     * so no channel is treated as complete until it receives a message again.
+     */
+    public synchronized void connect(boolean resumed) {
+        this.connected = true;
+        if (resumed) return;
+        this.channels.forEach((id, ring) -> ring.floor = Long.MAX_VALUE);
+    }
+
+    /**
+     * Marks the cache as disconnected. Nothing is answered locally until the session is resumed or replaced,
+     * since messages may be sent in the meantime.
+     */
+    public synchronized void suspend() {
+        this.connected = false;
+    }
+
+    /**
+     * Stores a message that was just sent, or replaces the stored version if it was already known.
+     *
+     * @return the version that was stored before, if any
+     */
+    public synchronized Entry store(Message message, String guild) {
+        if (!shouldCache || message == null || message.id == null || message.channel_id == null) return null;
+        final long channel = id(message.channel_id), id = message.id();
+        Ring ring = channels.get(channel);
+        if (ring == null) channels.put(channel, ring = new Ring(channel, channelSize));
+        final byte[] old = ring.messages.get(id);
+        if (old != null) return this.replace(ring, message, guild, old);
+        if (ring.count == ring.ids.length) this.drop(ring, ring.ids[ring.head], true);
+        final byte[] data = this.encode(message, guild, null);
+        ring.insert(id);
+        ring.messages.put(id, data);
+        if (ring.floor == Long.MAX_VALUE) ring.floor = id - 1; // everything from here on will be seen
+        this.bytes += data.length;
+        this.live++;
+        this.order(channel, id);
+        while (bytes > budget && orderSize > 0) this.evictOldest();
+        return null;
+    }
+
+    /**
+     * Replaces the stored version of an edited message.
+     * Fields missing from the edit are kept from the stored version.
+     * Edits to messages that are not stored are ignored, since they are from before the cache's window.
+     *
+     * @return the version that was stored before, if any
+     */
+    public synchronized Entry edit(Message message, String guild) {
+        if (!shouldCache || message == null || message.id == null || message.channel_id == null) return null;
+        final Ring ring = channels.get(id(message.channel_id));
+        if (ring == null) return null;
+        final byte[] old = ring.messages.get(message.id());
+        if (old == null) return null;
+        return this.replace(ring, message, guild, old);
+    }
+
+    private Entry replace(Ring ring, Message message, String guild, byte[] old) {
+        final Entry previous = new Entry(ring.channel, message.id(), old);
+        final byte[] data = this.encode(message, guild, previous);
+        ring.messages.put(previous.id, data);
+        this.bytes += data.length - old.length;
+        while (bytes > budget && orderSize > 0) this.evictOldest();
+        return previous;
+    }
+
+    /**
+     * Answers a message history query (as {@code /channels/{id}/messages} would) from the cache.
+     * At most one of around/before/after should be non-zero.
+     * <p>
+     * The result is newest-first. If it is not complete, it holds the newest part of the answer
+     * (if any), and the rest can be requested with {@code before} the oldest message in it.
+     * Around and after queries are answered whole or not at all.
+     */
+    public synchronized Window query(long channel, long around, long before, long after, int limit) {
+        final Ring ring = channels.get(channel);
+        if (!connected || ring == null || ring.floor == Long.MAX_VALUE || limit < 1) return Window.EMPTY;
+        final int low = ring.above(ring.floor), count = ring.count;
+        if (around != 0) {
+            final int half = limit / 2, middle = ring.above(around - 1);
+            if (around <= ring.floor || middle - low < half) return Window.EMPTY;
+            final int start = middle - half, end = Math.min(count, start + limit);
+            return new Window(this.collect(ring, start, end), true);
+        } else if (after != 0) {
+            if (after < ring.floor) return Window.EMPTY;
+            final int start = ring.above(after);
+            return new Window(this.collect(ring, start, Math.min(count, start + limit)), true);
+        }
+        final int end = before != 0 ? ring.above(before - 1) : count;
+        if (before != 0 && before <= ring.floor + 1) return Window.EMPTY;
+        final int start = Math.max(low, end - limit);
+        return new Window(this.collect(ring, start, end), end - low >= limit);
+    }
+
+    private Entry[] collect(Ring ring, int start, int end) {
+        final Entry[] entries = new Entry[Math.max(0, end - start)];
+        for (int i = 0; i < entries.length; i++) {
+            final long id = ring.get(end - 1 - i);
+            entries[i] = new Entry(ring.channel, id, ring.messages.get(id));
+        }
+        return entries;
+    }
+
+    /**
+     * @return the version that was stored, if any
+     */
+    public synchronized Entry remove(long channel, long id) {
+        final Ring ring = channels.get(channel);
+        if (ring == null) return null;
+        final byte[] data = ring.messages.get(id);
+        if (data == null) return null;
+        this.drop(ring, id, false);
+        return new Entry(channel, id, data);
+    }
+
+    public Entry remove(String channel, String id) {
+        if (channel == null || id == null) return null;
+        return this.remove(id(channel), id(id));
+    }
+
+    public synchronized void removeChannel(long channel) {
+        final Ring ring = channels.remove(channel);
+        if (ring == null) return;
+        for (final byte[] data : ring.messages.values()) {
+            this.bytes -= data.length;
+            this.live--;
+        }
+    }
+
+    public synchronized void clear() {
+        this.channels.clear();
+        this.bytes = 0;
+        this.live = 0;
+        this.orderHead = 0;
+        this.orderSize = 0;
+    }
+
+    /**
+     * @param evicted whether the message still exists (so the window can no longer include it)
+     *                rather than having been deleted
+     */
+    private void drop(Ring ring, long id, boolean evicted) {
+        final byte[] data = ring.messages.remove(id);
+        if (data == null) return;
+        ring.remove(id);
+        if (evicted && ring.floor != Long.MAX_VALUE && id > ring.floor)
+            ring.floor = id; // anything older may be stored, but the window starts after this
+        this.bytes -= data.length;
+        this.live--;
+    }
+
+    private void evictOldest() {
+        final long channel = orderChannels[orderHead], id = orderIds[orderHead];
+        this.orderHead = (orderHead + 1) % orderChannels.length;
+        this.orderSize--;
+        final Ring ring = channels.get(channel);
+        if (ring != null) this.drop(ring, id, true);
+    }
+
+    private void order(long channel, long id) {
+        if (orderSize > live * 2 + 64) this.compactOrder(); // most queued entries were already dropped
+        if (orderSize == orderChannels.length) this.growOrder(orderChannels.length << 1);
+        final int index = (orderHead + orderSize) % orderChannels.length;
+        this.orderChannels[index] = channel;
+        this.orderIds[index] = id;
+        this.orderSize++;
+    }
+
+    private void compactOrder() {
+        final long[] channels = new long[orderChannels.length], ids = new long[orderIds.length];
+        int count = 0;
+        for (int i = 0; i < orderSize; i++) {
+            final int index = (orderHead + i) % orderChannels.length;
+            final Ring ring = this.channels.get(orderChannels[index]);
+            if (ring == null || !ring.messages.containsKey(orderIds[index])) continue;
+            channels[count] = orderChannels[index];
+            ids[count++] = orderIds[index];
+        }
+        this.orderChannels = channels;
+        this.orderIds = ids;
+        this.orderHead = 0;
+        this.orderSize = count;
+    }
+
+    private void growOrder(int capacity) {
+        final long[] channels = new long[capacity], ids = new long[capacity];
+        for (int i = 0; i < orderSize; i++) {
+            final int index = (orderHead + i) % orderChannels.length;
+            channels[i] = orderChannels[index];
+            ids[i] = orderIds[index];
+        }
+        this.orderChannels = channels;
+        this.orderIds = ids;
+        this.orderHead = 0;
+    }
+
+    protected byte[] encode(Message message, String guild, Entry previous) {
+        final User author = message.author;
+        final byte[] content = bytes(message.content != null || previous == null ? message.content : previous.content),
+            name = bytes(author != null ? author.username : previous != null ? previous.author_name : null);
+        final List<byte[]> urls = new ArrayList<>();
+        if (message.attachments != null) for (final Attachment attachment : message.attachments) {
+            if (attachment != null && attachment.url != null) urls.add(bytes(attachment.url));
+        }
+        else if (previous != null) for (final String url : previous.attachments) urls.add(bytes(url));
+        int size = 8 * 4 + 4 * 2 + 1 + 4 * 2 + 2;
+        if (content != null) size += content.length;
+        if (name != null) size += name.length;
+        for (final byte[] url : urls) size += 4 + url.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(guild != null ? id(guild) : previous != null ? previous.guild : 0);
+        buffer.putLong(author != null && author.id != null ? author.id() : previous != null ? previous.author : 0);
+        buffer.putLong(message.timestamp != null || previous == null ? epoch(message.timestamp) : previous.timestamp);
+        buffer.putLong(epoch(message.edited_timestamp));
+        buffer.putInt(message.type);
+        buffer.putInt(message.flags);
+        buffer.put((byte) (message.pinned ? 1 : 0));
+        put(buffer, name);
+        put(buffer, content);
+        buffer.putShort((short) urls.size());
+        for (final byte[] url : urls) put(buffer, url);
+        return buffer.array();
+    }
+
+    public record Window(Entry[] messages, boolean complete) {
+
+        static final Window EMPTY = new Window(new Entry[0], false);
+
+        public List<Message> toMessages() {
+            final List<Message> list = new ArrayList<>(messages.length);
+            for (final Entry entry : messages) list.add(entry.toMessage());
+            return list;
+        }
+
+    }
+
+    /**
+     * A channel's stored ids, kept in ascending order in a circular buffer.
+     * Every message with an id above the floor has been seen (the floor is {@link Long#MAX_VALUE} when nothing is known).
+     */
+    protected static final class Ring {
+
+        final long channel;
+        final long[] ids;
+        final LongMap<byte[]> messages;
+        int head, count;
+        long floor = Long.MAX_VALUE;
+
+        Ring(long channel, int size) {
+            this.channel = channel;
+            this.ids = new long[Math.max(1, size)];
+            this.messages = new LongMap<>(ids.length);
+        }
+
+        long get(int index) {
+            return ids[(head + index) % ids.length];
+        }
+
+        private void set(int index, long id) {
+            this.ids[(head + index) % ids.length] = id;
+        }
+
+        /**
+         * The index of the first id greater than the given one.
+         */
+        int above(long id) {
+            int low = 0, high = count;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.get(middle) <= id) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        void insert(long id) { // messages arrive in order, so this is almost always an append
+            int index = count++;
+            while (index > 0 && this.get(index - 1) > id) {
+                this.set(index, this.get(index - 1));
+                index--;
+            }
+            this.set(index, id);
+        }
+
+        /**
+         * @return the index the id was at, or -1
+         */
+        int remove(long id) {
+            final int index = this.above(id - 1);
+            if (index >= count || this.get(index) != id) return -1;
+            if (index == 0) {
+                this.head = (head + 1) % ids.length;
+                this.count--;
+                return 0;
+            }
+            for (int i = index; i < count - 1; i++) this.set(i, this.get(i + 1));
+            this.count--;
+            return index;
+        }
+
+    }
+
+    /**
+     * A message decoded from the cache.
+     * This holds only what was stored: the content, author, timestamps and attachment links.
+     */
+    public final class Entry {
+
+        public final long channel, id, guild, author, timestamp, edited;
+        public final int type, flags;
+        public final boolean pinned;
+        public final String author_name, content;
+        public final String[] attachments;
+
+        Entry(long channel, long id, byte[] data) {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            this.channel = channel;
+            this.id = id;
+            this.guild = buffer.getLong();
+            this.author = buffer.getLong();
+            this.timestamp = buffer.getLong();
+            this.edited = buffer.getLong();
+            this.type = buffer.getInt();
+            this.flags = buffer.getInt();
+            this.pinned = buffer.get() != 0;
+            this.author_name = get(buffer);
+            this.content = get(buffer);
+            this.attachments = new String[buffer.getShort()];
+            for (int i = 0; i < attachments.length; i++) attachments[i] = get(buffer);
+        }
+
+        public Message toMessage() {
+            final Message message = new Message();
+            message.api = api;
+            message.id = Long.toString(id);
+            message.channel_id = Long.toString(channel);
+            message.content = content;
+            message.timestamp = timestamp(timestamp);
+            message.edited_timestamp = timestamp(edited);
+            message.type = type;
+            message.flags = flags;
+            message.pinned = pinned;
+            message.attachments = new Attachment[attachments.length];
+            for (int i = 0; i < attachments.length; i++) {
+                final Attachment attachment = new Attachment();
+                attachment.url = attachments[i];
+                final int query = attachments[i].indexOf('?');
+                final String path = query < 0 ? attachments[i] : attachments[i].substring(0, query);
+                attachment.filename = path.substring(path.lastIndexOf('/') + 1);
+                message.attachments[i] = attachment;
+            }
+            if (author != 0) {
+                final User user = new User();
+                user.api = api;
+                user.id = Long.toString(author);
+                user.username = author_name;
+                message.author = user;
+            }
+            message.finish();
+            return message;
+        }
+
+    }
+
+}
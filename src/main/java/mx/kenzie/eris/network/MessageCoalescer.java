@@ -0,0 +1,166 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Embed;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.message.UnsentMessage;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Merges small messages sent to the same channel, for log-style channels that would otherwise use
+ * a request (and a rate limit slot) for every line.
+ * <p>
+ * Messages are held for up to {@link #window} milliseconds and sent together as one,
+ * their contents joined by new lines, up to {@link #MAX_CONTENT} characters and {@link #MAX_EMBEDS} embeds.
+ * Each message given here becomes (a copy of) the message that carried its content, once that has been sent.
+ * <p>
+ * Messages with files, components, replies etc. cannot be merged: they are sent on their own,
+ * after whatever was waiting in that channel. Each channel's messages are sent in order.
+ */
+public class MessageCoalescer {
+
+    public static int MAX_CONTENT = 2000, MAX_EMBEDS = 10;
+
+    protected final Bot bot;
+    protected final DiscordAPI api;
+    protected final long window;
+    protected final Map<String, Batch> batches = new HashMap<>();
+    protected final Map<String, CompletableFuture<?>> tails = new HashMap<>();
+
+    public MessageCoalescer(Bot bot, long window) {
+        this.bot = bot;
+        this.api = bot.getAPI();
+        this.window = window;
+    }
+
+    private static boolean isEmpty(Object[] array) {
+        return array == null || array.length == 0;
+    }
+
+    protected boolean canMerge(Message message) {
+        if (!isEmpty(message.attachments) || !isEmpty(message.components) || !isEmpty(message.sticker_ids)) return false;
+        if (message.message_reference != null || message.allowed_mentions != null || message.payload_json != null)
+            return false;
+        if (message.tts || message.flags != 0 || message.nonce != null) return false;
+        final int length = message.content == null ? 0 : message.content.length();
+        final int embeds = message.embeds == null ? 0 : message.embeds.length;
+        return length + embeds > 0 && length <= MAX_CONTENT && embeds <= MAX_EMBEDS;
+    }
+
+    public Message send(Channel channel, Message message) {
+        return this.send(channel.id, message);
+    }
+
+    public synchronized Message send(String channel, Message message) {
+        message.unready();
+        if (message.api == null) message.api = api;
+        if (!this.canMerge(message)) {
+            this.flush(channel);
+            this.then(channel, () -> {
+                this.api.sendMessage(channel, message);
+                return CompletableFuture.runAsync(message::await, bot.executor);
+            });
+            return message;
+        }
+        Batch batch = batches.get(channel);
+        if (batch != null && !batch.fits(message)) {
+            this.flush(channel);
+            batch = null;
+        }
+        if (batch == null) {
+            final Batch created = batch = new Batch();
+            this.batches.put(channel, batch);
+            batch.timer = bot.scheduler().schedule(() -> this.flush(channel, created), window, TimeUnit.MILLISECONDS);
+        }
+        batch.add(message);
+        if (batch.isFull()) this.flush(channel);
+        return message;
+    }
+
+    /**
+     * Sends everything that is waiting, now.
+     */
+    public synchronized void flush() {
+        for (final String channel : new ArrayList<>(batches.keySet())) this.flush(channel);
+    }
+
+    public synchronized void flush(String channel) {
+        final Batch batch = batches.get(channel);
+        if (batch != null) this.flush(channel, batch);
+    }
+
+    protected synchronized void flush(String channel, Batch batch) {
+        if (batches.get(channel) != batch) return; // already sent
+        this.batches.remove(channel);
+        batch.timer.cancel(false);
+        final Message carrier = new Message();
+        carrier.api = api;
+        carrier.unready();
+        if (batch.content.length() > 0) carrier.content = batch.content.toString();
+        if (!batch.embeds.isEmpty()) carrier.embeds = batch.embeds.toArray(new Embed[0]);
+        final String body = Json.toJson(carrier, UnsentMessage.class, null);
+        this.then(channel, () -> api.requestJson("POST", "/channels/" + channel + "/messages", body, carrier)
+            .thenAccept(sent -> {
+                for (final Message message : batch.messages) {
+                    if (carrier.error() != null) {
+                        message.error(carrier.error());
+                        continue;
+                    }
+                    this.api.clone(carrier, message);
+                    message.finish();
+                }
+            }));
+    }
+
+    private void then(String channel, Supplier<CompletableFuture<?>> task) {
+        final CompletableFuture<?> tail = tails.getOrDefault(channel, CompletableFuture.completedFuture(null));
+        final CompletableFuture<?> next = tail.thenCompose(nothing -> task.get()).exceptionally(throwable -> {
+            Bot.handle(throwable);
+            return null;
+        });
+        this.tails.put(channel, next);
+        next.thenRun(() -> {
+            synchronized (this) {
+                this.tails.remove(channel, next); // nothing queued after it
+            }
+        });
+    }
+
+    protected static class Batch {
+
+        protected final StringBuilder content = new StringBuilder();
+        protected final List<Embed> embeds = new ArrayList<>();
+        protected final List<Message> messages = new ArrayList<>();
+        protected ScheduledFuture<?> timer;
+
+        boolean fits(Message message) {
+            final int length = message.content == null ? 0 : message.content.length();
+            final int separator = length > 0 && content.length() > 0 ? 1 : 0;
+            final int embeds = message.embeds == null ? 0 : message.embeds.length;
+            return content.length() + separator + length <= MAX_CONTENT && this.embeds.size() + embeds <= MAX_EMBEDS;
+        }
+
+        void add(Message message) {
+            if (message.content != null && !message.content.isEmpty()) {
+                if (content.length() > 0) this.content.append('\n');
+                this.content.append(message.content);
+            }
+            if (message.embeds != null) this.embeds.addAll(Arrays.asList(message.embeds));
+            this.messages.add(message);
+        }
+
+        boolean isFull() {
+            return content.length() >= MAX_CONTENT || embeds.size() >= MAX_EMBEDS;
+        }
+
+    }
+
+}
@@ -8,6 +8,8 @@ import mx.kenzie.eris.api.utility.MultiBody;
 import mx.kenzie.eris.data.incoming.Incoming;
 import mx.kenzie.eris.data.incoming.gateway.*;
 import mx.kenzie.eris.data.outgoing.Outgoing;
+import mx.kenzie.eris.data.outgoing.gateway.Heartbeat;
+import mx.kenzie.eris.utility.JsonWriter;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -23,11 +25,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class NetworkController implements Closeable {
 
     public static final Map<Integer, Class<? extends Incoming>> NETWORK_CODES = new HashMap<>();
+    /**
+     * Discord allows 120 gateway sends per minute; a few are left spare so heartbeats are never held back.
+     */
+    public static int GATEWAY_LIMIT = 115;
+    public static long GATEWAY_WINDOW = 60000;
 
     static {
         NETWORK_CODES.put(0, Dispatch.class);
@@ -46,6 +54,10 @@ public class NetworkController implements Closeable {
     public final Json.JsonHelper helper = new Json.JsonHelper();
     protected final Bot bot;
     protected WebSocket socket;
+    private final long[] sends = new long[GATEWAY_LIMIT];
+    private final Object sendLock = new Object();
+    private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+    private int sendIndex;
     private HttpClient client = HttpClient.newHttpClient();
 
     public NetworkController(String base, Bot bot) {
@@ -59,9 +71,13 @@ public class NetworkController implements Closeable {
 
     @Override
     public void close() {
+        this.close(1000, "Network controller forcibly closed socket.");
+    }
+
+    public void close(int code, String reason) {
         this.client = null; // Null the client to allow termination
         if (socket != null && !socket.isOutputClosed())
-            this.socket.sendClose(1000, "Network controller forcibly closed socket.");
+            this.socket.sendClose(code, reason);
         this.codes.clear();
         this.listeners.clear();
     }
@@ -90,7 +106,29 @@ public class NetworkController implements Closeable {
         assert socket != null;
         assert payload != null;
         this.bot.debug("Dispatch " + payload.getClass().getSimpleName());
-        return this.socket.sendText(Json.toJson(payload), true);
+        final StringBuilder text = new StringBuilder(256);
+        new JsonWriter(text).write(payload);
+        if (payload instanceof Heartbeat) return this.send(text);
+        final long wait;
+        synchronized (sends) { // the slot we take back was used GATEWAY_LIMIT sends ago
+            final long now = System.currentTimeMillis();
+            wait = Math.max(0, sends[sendIndex] + GATEWAY_WINDOW - now);
+            this.sends[sendIndex] = now + wait;
+            this.sendIndex = (sendIndex + 1) % sends.length;
+        }
+        if (wait < 1) return this.send(text);
+        this.bot.debug("Delaying dispatch by " + wait + "ms for the gateway rate limit.");
+        return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS, bot.executor))
+            .thenCompose(nothing -> this.send(text));
+    }
+
+    private CompletableFuture<?> send(CharSequence text) {
+        synchronized (sendLock) { // the socket permits only one outstanding send
+            final CompletableFuture<?> future = lastSend.thenCompose(previous -> this.socket.sendText(text, true));
+            this.lastSend = future.exceptionally(throwable -> null);
+            return future;
+        }
     }
 
     public <Event extends Incoming> void registerListener(Class<Event> type, Listener<Event> listener) {
@@ -159,18 +197,27 @@ public class NetworkController implements Closeable {
         list.add("Content-Type");
         list.add("multipart/form-data; boundary=boundary");
         if (body == null) publisher = HttpRequest.BodyPublishers.noBody();
-        else publisher = HttpRequest.BodyPublishers.ofInputStream(body::stream);
+        else publisher = body.publisher();
         final HttpRequest request = HttpRequest.newBuilder(uri).method(method, publisher)
             .headers(list.toArray(new String[0])).build();
         return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
     }
 
     public HttpResponse<InputStream> request(String method, String path, String body, String... headers)
+        throws IOException, InterruptedException {
+        return this.requestBody(method, path, body == null ? null : JsonBody.of(body), headers);
+    }
+
+    /**
+     * Sends a request with a JSON body. The body is closed once the client has answered,
+     * so its buffers can be reused when the client has finished reading them.
+     */
+    public HttpResponse<InputStream> requestBody(String method, String path, JsonBody body, String... headers)
         throws IOException, InterruptedException {
         final URI uri = URI.create(base + path);
         final HttpRequest.BodyPublisher publisher;
         if (body == null) publisher = HttpRequest.BodyPublishers.noBody();
-        else publisher = HttpRequest.BodyPublishers.ofString(body);
+        else publisher = body.publisher();
         final List<String> list = new ArrayList<>();
         for (final String header : headers) list.add(header.trim());
         if (body != null && !list.contains("Content-Type")) {
@@ -179,7 +226,11 @@ public class NetworkController implements Closeable {
         }
         final HttpRequest request = HttpRequest.newBuilder(uri).method(method, publisher)
             .headers(list.toArray(new String[0])).build();
-        return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } finally {
+            if (body != null) body.close();
+        }
     }
 
     public HttpResponse<InputStream> get(String path, String... headers) throws IOException, InterruptedException {
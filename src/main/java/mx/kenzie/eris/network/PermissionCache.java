@@ -0,0 +1,322 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Guild;
+import mx.kenzie.eris.api.entity.Role;
+import mx.kenzie.eris.api.entity.guild.CreateChannel;
+import mx.kenzie.eris.api.magic.ChannelType;
+import mx.kenzie.eris.api.magic.Permission;
+import mx.kenzie.eris.api.magic.PermissionOverwriteType;
+import mx.kenzie.eris.api.utility.LongMap;
+
+/**
+ * Computes effective permissions from the roles, channel overwrites and members seen on the gateway,
+ * following the order Discord applies them in (base roles, then @everyone, role and member overwrites).
+ * <p>
+ * Channel results are memoised. A stored result is only used while the guild's roles, the channel and
+ * the member's cache entry are the same ones it was computed from, so role, channel and member updates
+ * invalidate it without any clearing.
+ * <p>
+ * Channel results follow Discord's implicit rules: a member who cannot view a channel has no permissions in it,
+ * and a member who cannot send messages there cannot mention everyone, send tts messages, embed links or attach files.
+ * <p>
+ * A guild that has not been seen has no permissions. A channel that has not been seen is answered at guild level.
+ */
+public class PermissionCache {
+
+    public static int MEMO_SIZE = 1024;
+
+    private static final long TIMED_OUT = Permission.VIEW_CHANNEL | Permission.READ_MESSAGE_HISTORY;
+    private static final long SENDING = Permission.MENTION_EVERYONE | Permission.SEND_TTS_MESSAGES
+        | Permission.EMBED_LINKS | Permission.ATTACH_FILES;
+
+    protected final LongMap<GuildData> guilds = new LongMap<>();
+    protected final MemberCache members;
+
+    public PermissionCache(MemberCache members) {
+        this.members = members;
+    }
+
+    private static long id(String id) {
+        if (id == null) return 0;
+        return Long.parseLong(id);
+    }
+
+    private static long bits(String permissions) {
+        if (permissions == null || permissions.isEmpty()) return 0;
+        return Long.parseLong(permissions);
+    }
+
+    /**
+     * Removes the permissions that depend on others the member does not have in a channel.
+     */
+    static long implicit(long permissions, boolean thread) {
+        if (permissions == -1L) return permissions;
+        if ((permissions & Permission.VIEW_CHANNEL) == 0) return 0;
+        final long send = thread ? Permission.SEND_MESSAGES_IN_THREADS : Permission.SEND_MESSAGES;
+        if ((permissions & send) == 0) permissions &= ~SENDING;
+        return permissions;
+    }
+
+    private static int slot(long user, long channel) {
+        final long mixed = (user ^ Long.rotateLeft(channel, 29)) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    protected GuildData getGuild(long guild) {
+        synchronized (guilds) {
+            return guilds.get(guild);
+        }
+    }
+
+    private GuildData getOrCreate(long guild) {
+        synchronized (guilds) {
+            GuildData data = guilds.get(guild);
+            if (data == null) guilds.put(guild, data = new GuildData(guild));
+            return data;
+        }
+    }
+
+    public long getPermissions(long guild, long user) {
+        final GuildData data = this.getGuild(guild);
+        final MemberCache.Entry member = members.get(guild, user);
+        if (data == null || member == null) return 0;
+        return this.timeout(data, member, data.base(user, member.roles));
+    }
+
+    public long getPermissions(long guild, long user, long channel) {
+        final GuildData data = this.getGuild(guild);
+        final MemberCache.Entry member = members.get(guild, user);
+        if (data == null || member == null) return 0;
+        final ChannelData target = data.channel(channel), source = data.overwrites(target);
+        final int version = data.version;
+        final int index = slot(user, channel) & (data.memo.length - 1);
+        final Memo memo = data.memo[index];
+        if (memo != null && memo.member == member && memo.channel == target && memo.source == source
+            && memo.version == version)
+            return this.timeout(data, member, memo.permissions);
+        final long permissions = data.compute(user, member.roles, target);
+        data.memo[index] = new Memo(member, target, source, version, permissions);
+        return this.timeout(data, member, permissions);
+    }
+
+    /**
+     * Computes permissions for a member that might not be cached (e.g. from an interaction), without memoising.
+     */
+    public long computePermissions(long guild, long user, long[] roles, long channel) {
+        final GuildData data = this.getGuild(guild);
+        if (data == null) return 0;
+        return data.compute(user, roles, data.channel(channel));
+    }
+
+    public boolean hasPermission(long guild, long user, long channel, long permission) {
+        return (this.getPermissions(guild, user, channel) & permission) == permission;
+    }
+
+    /**
+     * Whether the actor is above the target in the role hierarchy.
+     * Nobody can moderate the owner or themselves, and the owner can moderate everybody else.
+     */
+    public boolean canModerate(long guild, long actor, long target) {
+        if (actor == target) return false;
+        final GuildData data = this.getGuild(guild);
+        if (data == null || data.owner == target) return false;
+        if (data.owner == actor) return true;
+        final MemberCache.Entry first = members.get(guild, actor), second = members.get(guild, target);
+        if (first == null || second == null) return false;
+        return data.highest(first.roles) > data.highest(second.roles);
+    }
+
+    public boolean canModerate(long guild, long actor, long target, long permission) {
+        return this.canModerate(guild, actor, target) && (this.getPermissions(guild, actor) & permission) == permission;
+    }
+
+    private long timeout(GuildData data, MemberCache.Entry member, long permissions) {
+        if (member.timeout == 0 || data.owner == member.id) return permissions;
+        if ((permissions & Permission.ADMINISTRATOR) != 0) return permissions;
+        if (!member.isTimedOut()) return permissions;
+        return permissions & TIMED_OUT;
+    }
+
+    public void storeGuild(Guild guild) {
+        if (guild == null || guild.id == null) return;
+        final GuildData data = this.getOrCreate(guild.id());
+        synchronized (data) {
+            if (guild.owner_id != null) data.owner = id(guild.owner_id);
+            if (guild.roles != null) {
+                data.roles.clear();
+                for (final Role role : guild.roles) data.roles.put(role.id(), new RoleData(role));
+            }
+            data.version++;
+        }
+    }
+
+    public void storeChannels(String guild, Channel... channels) {
+        if (guild == null || channels == null) return;
+        final GuildData data = this.getOrCreate(id(guild));
+        synchronized (data) {
+            for (final Channel channel : channels) {
+                if (channel == null || channel.id == null) continue;
+                data.channels.put(channel.id(), new ChannelData(channel));
+            }
+        }
+    }
+
+    public void removeChannel(String guild, String channel) {
+        if (guild == null || channel == null) return;
+        final GuildData data = this.getGuild(id(guild));
+        if (data == null) return;
+        synchronized (data) {
+            data.channels.remove(id(channel));
+        }
+    }
+
+    public void storeRole(String guild, Role role) {
+        if (guild == null || role == null || role.id == null) return;
+        final GuildData data = this.getOrCreate(id(guild));
+        synchronized (data) {
+            data.roles.put(role.id(), new RoleData(role));
+            data.version++;
+        }
+    }
+
+    public void removeRole(String guild, String role) {
+        if (guild == null || role == null) return;
+        final GuildData data = this.getGuild(id(guild));
+        if (data == null) return;
+        synchronized (data) {
+            data.roles.remove(id(role));
+            data.version++;
+        }
+    }
+
+    public void removeGuild(String guild) {
+        if (guild == null) return;
+        synchronized (guilds) {
+            this.guilds.remove(id(guild));
+        }
+    }
+
+    public void clear() {
+        synchronized (guilds) {
+            this.guilds.clear();
+        }
+    }
+
+    protected record RoleData(long permissions, int position) {
+
+        RoleData(Role role) {
+            this(bits(role.permissions), role.position);
+        }
+
+    }
+
+    protected record Memo(MemberCache.Entry member, ChannelData channel, ChannelData source, int version,
+                          long permissions) {
+    }
+
+    protected static final class ChannelData {
+
+        final long parent;
+        final boolean thread;
+        final long[] ids, allow, deny;
+        final int[] types;
+
+        ChannelData(Channel channel) {
+            this.thread = switch (channel.type) {
+                case ChannelType.GUILD_NEWS_THREAD, ChannelType.GUILD_PUBLIC_THREAD, ChannelType.GUILD_PRIVATE_THREAD ->
+                    true;
+                default -> false;
+            };
+            this.parent = id(channel.parent_id);
+            final CreateChannel.PermissionOverwrite[] overwrites = channel.permission_overwrites;
+            final int length = overwrites == null ? 0 : overwrites.length;
+            this.ids = new long[length];
+            this.allow = new long[length];
+            this.deny = new long[length];
+            this.types = new int[length];
+            for (int i = 0; i < length; i++) {
+                this.ids[i] = id(overwrites[i].id);
+                this.allow[i] = bits(overwrites[i].allow);
+                this.deny[i] = bits(overwrites[i].deny);
+                this.types[i] = overwrites[i].type;
+            }
+        }
+
+    }
+
+    protected static final class GuildData {
+
+        final long id;
+        final LongMap<RoleData> roles = new LongMap<>();
+        final LongMap<ChannelData> channels = new LongMap<>();
+        final Memo[] memo = new Memo[Integer.highestOneBit(Math.max(16, MEMO_SIZE))];
+        volatile int version;
+        volatile long owner;
+
+        GuildData(long id) {
+            this.id = id;
+        }
+
+        synchronized ChannelData channel(long channel) {
+            return channels.get(channel);
+        }
+
+        synchronized ChannelData overwrites(ChannelData channel) {
+            if (channel == null || !channel.thread) return channel;
+            final ChannelData parent = channels.get(channel.parent); // threads use their parent's overwrites
+            return parent != null ? parent : channel;
+        }
+
+        synchronized int highest(long[] roles) {
+            int highest = 0;
+            for (final long role : roles) {
+                final RoleData data = this.roles.get(role);
+                if (data != null && data.position > highest) highest = data.position;
+            }
+            return highest;
+        }
+
+        synchronized long base(long user, long[] roles) {
+            if (user == owner) return -1L;
+            final RoleData everyone = this.roles.get(id);
+            long permissions = everyone == null ? 0 : everyone.permissions;
+            for (final long role : roles) {
+                final RoleData data = this.roles.get(role);
+                if (data != null) permissions |= data.permissions;
+            }
+            if ((permissions & Permission.ADMINISTRATOR) != 0) return -1L;
+            return permissions;
+        }
+
+        synchronized long compute(long user, long[] roles, ChannelData target) {
+            long permissions = this.base(user, roles);
+            if (permissions == -1L || target == null) return permissions;
+            final ChannelData channel = this.overwrites(target);
+            long allow = 0, deny = 0;
+            for (int i = 0; i < channel.ids.length; i++) {
+                if (channel.ids[i] != id) continue;
+                permissions &= ~channel.deny[i];
+                permissions |= channel.allow[i];
+            }
+            for (int i = 0; i < channel.ids.length; i++) {
+                if (channel.types[i] != PermissionOverwriteType.ROLE || channel.ids[i] == id) continue;
+                for (final long role : roles) {
+                    if (role != channel.ids[i]) continue;
+                    allow |= channel.allow[i];
+                    deny |= channel.deny[i];
+                }
+            }
+            permissions &= ~deny;
+            permissions |= allow;
+            for (int i = 0; i < channel.ids.length; i++) {
+                if (channel.types[i] != PermissionOverwriteType.MEMBER || channel.ids[i] != user) continue;
+                permissions &= ~channel.deny[i];
+                permissions |= channel.allow[i];
+            }
+            return implicit(permissions, target.thread);
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.error.RateLimitException;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rate limit buckets Discord has reported, from the headers of each response.
+ * <p>
+ * Routes are told apart by method and path, with ids replaced by {@code {id}}
+ * except for the channel, guild or webhook the route belongs to (which have separate limits).
+ * A route's bucket is only known once a request has been made to it.
+ */
+public class RateLimits {
+
+    protected final Map<String, String> routes = new ConcurrentHashMap<>(); // route -> bucket id
+    protected final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public static String route(String method, String path) {
+        final int query = path.indexOf('?');
+        if (query > -1) path = path.substring(0, query);
+        if (path.startsWith("/api/v")) path = path.substring(path.indexOf('/', 5)); // the request uri has the version
+        final String[] parts = path.split("/");
+        final StringBuilder builder = new StringBuilder(method).append(' ');
+        for (int i = 1; i < parts.length; i++) {
+            final String part = parts[i], previous = parts[i - 1];
+            builder.append('/');
+            if (!part.isEmpty() && part.chars().allMatch(Character::isDigit)
+                && !previous.equals("channels") && !previous.equals("guilds") && !previous.equals("webhooks"))
+                builder.append("{id}");
+            else builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    private static double number(HttpResponse<?> response, String header, double fallback) {
+        return response.headers().firstValue(header).map(Double::parseDouble).orElse(fallback);
+    }
+
+    /**
+     * The error for a 429 response, waiting as long as its body says (or its {@code Retry-After} header, without one).
+     */
+    public static RateLimitException exception(HttpResponse<?> response, Map<String, Object> body) {
+        final Object after = body.get("retry_after");
+        final long retry;
+        if (after instanceof Number number) retry = (long) (number.doubleValue() * 1000);
+        else retry = (long) (number(response, "Retry-After", 1) * 1000);
+        final boolean global = Boolean.TRUE.equals(body.get("global"))
+            || response.headers().firstValue("X-RateLimit-Global").map(Boolean::parseBoolean).orElse(false);
+        return new RateLimitException(body.getOrDefault("message", "You are being rate limited.") + "", retry, global);
+    }
+
+    public void update(HttpResponse<?> response) {
+        final String id = response.headers().firstValue("X-RateLimit-Bucket").orElse(null);
+        if (id == null) return;
+        final String route = route(response.request().method(), response.request().uri().getPath());
+        final int limit = (int) number(response, "X-RateLimit-Limit", 1);
+        final int remaining = (int) number(response, "X-RateLimit-Remaining", 0);
+        final long reset = System.currentTimeMillis() + (long) (number(response, "X-RateLimit-Reset-After", 0) * 1000);
+        this.routes.put(route, id);
+        this.buckets.put(id + route.substring(route.indexOf(' ')), new Bucket(id, limit, remaining, reset));
+    }
+
+    /**
+     * @return the bucket for this route (e.g. {@code "PATCH", "/guilds/1/members/2"}), or null if it is not known yet
+     */
+    public Bucket get(String method, String path) {
+        final String route = route(method, path);
+        final String id = routes.get(route);
+        if (id == null) return null;
+        return buckets.get(id + route.substring(route.indexOf(' ')));
+    }
+
+    public record Bucket(String id, int limit, int remaining, long reset) {
+
+        /**
+         * @return how many requests can be made now, which is the whole limit once the bucket has reset
+         */
+        public int available() {
+            return System.currentTimeMillis() >= reset ? limit : remaining;
+        }
+
+        public long resetsIn() {
+            return Math.max(0, reset - System.currentTimeMillis());
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.guild.ModifyMember;
+import mx.kenzie.eris.api.magic.Intents;
+import mx.kenzie.eris.error.DiscordException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges role changes for the same member into one request.
+ * <p>
+ * Roles added or removed within {@link #WINDOW} milliseconds of each other are applied together,
+ * by setting the member's whole role list (worked out from their cached roles) in one member update,
+ * rather than one request for each role. This is only done when the cached roles are known to be current
+ * (the member intent is on and the member has been seen since any snapshot was loaded);
+ * otherwise each change uses the single-role endpoint.
+ * <p>
+ * Changes for a member wait for the previous request for that member, so they are never worked out from stale roles.
+ */
+public class RoleBatcher {
+
+    public static long WINDOW = 100;
+
+    protected final Bot bot;
+    protected final DiscordAPI api;
+    protected final Map<String, Pending> pending = new HashMap<>();
+    protected final Map<String, CompletableFuture<?>> sending = new HashMap<>();
+
+    public RoleBatcher(Bot bot, DiscordAPI api) {
+        this.bot = bot;
+        this.api = api;
+    }
+
+    public <IGuild, IUser, IRole> Member add(IGuild guild, IUser user, IRole role) {
+        return this.change(api.getGuildId(guild), api.getUserId(user), api.getId(role), true);
+    }
+
+    public <IGuild, IUser, IRole> Member remove(IGuild guild, IUser user, IRole role) {
+        return this.change(api.getGuildId(guild), api.getUserId(user), api.getId(role), false);
+    }
+
+    /**
+     * @return the member, once the request with this change in it has finished
+     */
+    protected synchronized Member change(String guild, String user, String role, boolean add) {
+        final String key = guild + "/" + user;
+        Pending batch = pending.get(key);
+        if (batch == null) {
+            final Pending created = batch = new Pending(guild, user);
+            this.pending.put(key, batch);
+            batch.timer = bot.scheduler().schedule(() -> this.flush(key, created), WINDOW, TimeUnit.MILLISECONDS);
+        }
+        batch.changes.put(role, add); // the last change to a role wins
+        return batch.result;
+    }
+
+    /**
+     * Sends all waiting changes now.
+     */
+    public synchronized void flush() {
+        for (final Map.Entry<String, Pending> entry : new ArrayList<>(pending.entrySet()))
+            this.flush(entry.getKey(), entry.getValue());
+    }
+
+    protected synchronized void flush(String key, Pending batch) {
+        if (pending.get(key) != batch) return;
+        this.pending.remove(key);
+        batch.timer.cancel(false);
+        final CompletableFuture<?> previous = sending.getOrDefault(key, CompletableFuture.completedFuture(null));
+        final CompletableFuture<?> next = previous.thenCompose(nothing -> this.send(batch)).exceptionally(throwable -> {
+            batch.result.error(throwable);
+            return null;
+        });
+        this.sending.put(key, next);
+        next.thenRun(() -> {
+            synchronized (this) {
+                this.sending.remove(key, next);
+            }
+        });
+    }
+
+    protected CompletableFuture<?> send(Pending batch) {
+        final Member result = batch.result;
+        final MemberCache.Entry entry = api.getLocalMember(batch.guild, batch.user);
+        if (entry == null || entry.restored || (bot.intents() & Intents.GUILD_MEMBERS) == 0)
+            return this.sendEach(batch); // the cached roles may be missing changes made elsewhere
+        final Set<String> roles = new LinkedHashSet<>();
+        for (final long role : entry.roles) roles.add(Long.toString(role));
+        for (final Map.Entry<String, Boolean> change : batch.changes.entrySet()) {
+            if (change.getValue()) roles.add(change.getKey());
+            else roles.remove(change.getKey());
+        }
+        final ModifyMember modify = new ModifyMember();
+        modify.roles = roles.toArray(new String[0]);
+        return this.request("PATCH", "/guilds/" + batch.guild + "/members/" + batch.user, modify, result)
+            .thenRun(() -> this.finish(batch));
+    }
+
+    /**
+     * Applies each change with the single-role endpoint, then fetches the member, since those give nothing back.
+     */
+    protected CompletableFuture<?> sendEach(Pending batch) {
+        final Member result = batch.result;
+        final String path = "/guilds/" + batch.guild + "/members/" + batch.user;
+        CompletableFuture<?> chain = CompletableFuture.completedFuture(null);
+        for (final Map.Entry<String, Boolean> change : batch.changes.entrySet()) {
+            final boolean add = change.getValue();
+            chain = chain.thenCompose(nothing -> result.error() != null ? CompletableFuture.completedFuture(null)
+                : this.request(add ? "PUT" : "DELETE", path + "/roles/" + change.getKey(), add ? "[]" : null, result));
+        }
+        return chain.thenCompose(nothing -> result.error() != null ? CompletableFuture.completedFuture(null)
+            : this.request("GET", path, null, result)).thenRun(() -> this.finish(batch));
+    }
+
+    protected void finish(Pending batch) {
+        final Member result = batch.result;
+        if (result.error() == null) {
+            result.guild_id = batch.guild;
+            if (result.user == null || result.user.id == null) {
+                result.error(new DiscordException("Unable to find the member after changing their roles."));
+                return;
+            }
+            this.api.getMemberCache().store(batch.guild, result); // so the next change starts from these roles
+        }
+        result.finish();
+    }
+
+    protected CompletableFuture<?> request(String method, String path, Object body, Member result) {
+        if (body instanceof ModifyMember modify) body = Json.toJson(modify, ModifyMember.class, null);
+        return api.requestJson(method, path, body, result);
+    }
+
+    protected class Pending {
+
+        protected final String guild, user;
+        protected final Map<String, Boolean> changes = new LinkedHashMap<>();
+        protected final Member result = new Member();
+        protected ScheduledFuture<?> timer;
+
+        Pending(String guild, String user) {
+            this.guild = guild;
+            this.user = user;
+            this.result.api = api;
+            this.result.unready();
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps the gateway session (id, last sequence and resume url) in a local file,
+ * so that a restarted bot can resume its session rather than identifying again.
+ * <p>
+ * The sequence changes with every dispatch, so changes are only marked here and written
+ * (and synced to disk) together by {@link #flush()}, which the bot runs periodically.
+ * A session that was last written more than {@link #MAX_AGE} milliseconds ago is not resumed.
+ */
+public class SessionStore {
+
+    public static final int MAGIC = 0x45525353, VERSION = 1;
+    public static long MAX_AGE = 120000, INTERVAL = 1000;
+
+    protected final Path path;
+    protected volatile String session, url;
+    protected volatile int sequence;
+    protected volatile long updated;
+    private volatile boolean dirty;
+
+    public SessionStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the stored session, if there is one.
+     *
+     * @return whether there is a session that can still be resumed
+     */
+    public synchronized boolean load() {
+        if (!Files.isRegularFile(path)) return false;
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) return false;
+            this.updated = input.readLong();
+            this.sequence = input.readInt();
+            this.session = input.readUTF();
+            this.url = input.readUTF();
+        } catch (IOException ex) {
+            this.session = null;
+            return false;
+        }
+        if (session.isEmpty()) this.session = null;
+        if (url.isEmpty()) this.url = null;
+        return this.canResume();
+    }
+
+    public boolean canResume() {
+        return session != null && sequence > 0 && System.currentTimeMillis() - updated < MAX_AGE;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    public String getResumeURL() {
+        return url;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void update(String session, String url) {
+        this.session = session;
+        this.url = url;
+        this.dirty = true;
+    }
+
+    public void update(int sequence) {
+        if (sequence == this.sequence) return;
+        this.sequence = sequence;
+        this.dirty = true;
+    }
+
+    /**
+     * Forgets the session, e.g. when Discord has invalidated it.
+     */
+    public void clear() {
+        this.session = null;
+        this.url = null;
+        this.sequence = 0;
+        this.dirty = true;
+    }
+
+    /**
+     * Writes the session if it has changed since the last flush.
+     * The file is replaced whole, so a crash leaves either the old or the new version.
+     */
+    public synchronized void flush() {
+        if (!dirty) return;
+        this.dirty = false;
+        this.updated = System.currentTimeMillis();
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(updated);
+            output.writeInt(sequence);
+            output.writeUTF(session == null ? "" : session);
+            output.writeUTF(url == null ? "" : url);
+            output.flush();
+            stream.getFD().sync();
+        } catch (IOException ex) {
+            this.dirty = true;
+            Bot.handle(ex);
+            return;
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            this.dirty = true;
+            Bot.handle(ex);
+        }
+    }
+
+}
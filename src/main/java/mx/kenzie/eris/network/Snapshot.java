@@ -0,0 +1,483 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.Snowflake;
+import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.api.utility.LongMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * A warm-restart snapshot of the entity and member caches.
+ * <p>
+ * The file is a versioned header followed by records that are only ever appended:
+ * entities (guilds, channels, users) are written as JSON, members in a compact binary form.
+ * Later records replace earlier ones, and the file is compacted (on load, or on a flush)
+ * when most of it is out of date. A file from another version is discarded.
+ * <p>
+ * On load, members are restored straight away, but entities are only decoded when they are first looked up.
+ * Restored members are dropped once their guild's member list shows they have left,
+ * see {@link MemberCache#reconcile(String)}.
+ * <p>
+ * Nothing is written as things change: entities and members are queued, and written in batches by {@link #flush()}.
+ * A member that changes several times between flushes is only written once. The queues are only locked while a flush
+ * takes what is in them, so the caches are not held up while the file is written.
+ * An entity that is still not ready {@link #READY_WAIT} milliseconds after it was queued is dropped.
+ */
+public class Snapshot implements Closeable {
+
+    public static final int MAGIC = 0x45524953, VERSION = 1;
+    public static int BUFFER_SIZE = 1 << 16;
+    public static long INTERVAL = 5000, READY_WAIT = 60000;
+    protected static final byte ENTITY = 1, MEMBER = 2, REMOVE_MEMBER = 3, REMOVE_GUILD = 4;
+    private static final int HEADER = 8, RECORD = 5;
+
+    protected final DiscordAPI api;
+    protected final Path path;
+    protected final Json.JsonHelper helper = new Json.JsonHelper();
+    protected final Object io = new Object(); // held while the file is written, rather than this
+    protected final Map<String, Queued> dirty = new LinkedHashMap<>();
+    protected LongMap<Long> index = new LongMap<>();
+    protected final Map<Key, MemberCache.Entry> pending = new LinkedHashMap<>();
+    protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    protected FileChannel channel;
+    protected MemberCache members;
+    private long end;
+    private int records;
+
+    public Snapshot(DiscordAPI api, Path path) {
+        this.api = api;
+        this.path = path;
+    }
+
+    private static long id(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException | NullPointerException ex) {
+            return 0;
+        }
+    }
+
+    private static byte[] bytes(String string) {
+        if (string == null) return null;
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] string) {
+        return 4 + (string == null ? 0 : string.length);
+    }
+
+    private static void put(ByteBuffer buffer, byte[] string) {
+        if (string == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private static String get(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) return null;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String timestamp(long epoch) {
+        if (epoch == 0) return null;
+        return DiscordAPI.getTimestamp(Instant.ofEpochMilli(epoch));
+    }
+
+    /**
+     * Reads the file (if there is one) and opens it for writing.
+     * Restored members are given to the member cache.
+     */
+    public void load(MemberCache members) throws IOException {
+        synchronized (io) {
+            synchronized (this) {
+                this.load0(members);
+            }
+        }
+    }
+
+    private void load0(MemberCache members) throws IOException {
+        this.members = members;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        this.end = 0;
+        if (channel.size() >= HEADER) {
+            final ByteBuffer header = this.read(0, HEADER);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION) this.end = this.scan(channel, index, members);
+        }
+        if (end == 0) {
+            this.channel.truncate(0);
+            this.channel.write(ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            this.end = HEADER;
+        } else if (this.isStale()) this.compact();
+        else this.channel.truncate(end); // drops a record that was cut short
+        this.channel.position(end);
+    }
+
+    private boolean isStale() {
+        int count;
+        synchronized (this) {
+            count = index.size();
+        }
+        if (members != null) for (final long guild : members.getGuilds()) count += members.size(guild);
+        return records > count * 2 + 1024;
+    }
+
+    /**
+     * @return the end of the last whole record
+     */
+    private long scan(FileChannel channel, LongMap<Long> index, MemberCache members) throws IOException {
+        long position = HEADER;
+        this.records = 0;
+        index.clear();
+        channel.position(HEADER);
+        final DataInputStream stream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+            BUFFER_SIZE)); // not closed, since that would close the channel
+        try {
+            while (true) {
+                final int kind = stream.read();
+                if (kind < 0) break;
+                final int length = stream.readInt();
+                if (length < 0) break;
+                if (kind == ENTITY) {
+                    if (length < 8) break;
+                    index.put(stream.readLong(), position);
+                    stream.skipNBytes(length - 8);
+                } else if (kind >= MEMBER && kind <= REMOVE_GUILD) {
+                    final byte[] bytes = new byte[length];
+                    stream.readFully(bytes);
+                    if (members != null) this.apply(members, (byte) kind, ByteBuffer.wrap(bytes));
+                } else break;
+                position += RECORD + length;
+                this.records++;
+            }
+        } catch (EOFException | RuntimeException ex) {
+            // the last record was cut short (or is not one), so the file ends before it
+        }
+        return position;
+    }
+
+    private void apply(MemberCache members, byte kind, ByteBuffer payload) {
+        switch (kind) {
+            case MEMBER -> this.restore(members, payload);
+            case REMOVE_MEMBER -> {
+                final User user = new User();
+                final String guild = Long.toString(payload.getLong());
+                user.id = Long.toString(payload.getLong());
+                members.remove(guild, user);
+            }
+            case REMOVE_GUILD -> members.removeGuild(Long.toString(payload.getLong()));
+        }
+    }
+
+    /**
+     * Rewrites the file with only the latest entity records and the members that are currently known.
+     * The new file is written and read back before it replaces the old one, which is the only part that locks.
+     */
+    private void compact() throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        final List<Long> positions;
+        synchronized (this) {
+            positions = new ArrayList<>(index.values());
+        }
+        try (final FileChannel write = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write.write(ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip());
+            for (final Long position : positions) {
+                long from = position, remaining = RECORD + this.read(position + 1, 4).getInt(0);
+                while (remaining > 0) {
+                    final long moved = channel.transferTo(from, remaining, write);
+                    if (moved <= 0) break;
+                    from += moved;
+                    remaining -= moved;
+                }
+            }
+            if (members != null) for (final long guild : members.getGuilds()) {
+                for (final MemberCache.Entry entry : members.getMembers(guild)) write.write(this.encode(entry).flip());
+            }
+        }
+        final LongMap<Long> index = new LongMap<>();
+        try (final FileChannel read = FileChannel.open(temporary, StandardOpenOption.READ)) {
+            this.end = this.scan(read, index, null);
+        }
+        synchronized (this) {
+            for (final String id : dirty.keySet()) index.remove(id(id)); // changed while this was being written
+            this.channel.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(end);
+            this.index = index;
+        }
+    }
+
+    /**
+     * Decodes an entity from the file, if it has one.
+     * The entity is then written again on the next flush, since the caller may change it.
+     */
+    public Snowflake read(String id) {
+        final ByteBuffer payload;
+        synchronized (this) {
+            final Long position = index.remove(id(id));
+            if (position == null || channel == null) return null;
+            try {
+                final int length = this.read(position + 1, 4).getInt(0);
+                payload = this.read(position + RECORD + 8, length - 8);
+            } catch (Throwable ex) {
+                Bot.handle(ex);
+                return null;
+            }
+        }
+        try {
+            final byte[] name = new byte[payload.getShort()];
+            payload.get(name);
+            final Class<?> type = Class.forName(new String(name, StandardCharsets.UTF_8), true,
+                Snowflake.class.getClassLoader());
+            if (!Snowflake.class.isAssignableFrom(type)) return null;
+            final byte[] json = new byte[payload.remaining()];
+            payload.get(json);
+            final Snowflake entity = (Snowflake) helper.createObject(type);
+            try (final Json reader = new Json(new String(json, StandardCharsets.UTF_8))) {
+                this.helper.mapToObject(entity, type, reader.toMap());
+            }
+            entity.api = api;
+            entity.finish();
+            synchronized (this) {
+                this.dirty.putIfAbsent(id, new Queued(entity, System.currentTimeMillis()));
+            }
+            return entity;
+        } catch (Throwable ex) {
+            Bot.handle(ex);
+            return null;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        final ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) if (channel.read(data, position + data.position()) < 0) throw new EOFException();
+        return data.flip();
+    }
+
+    /**
+     * Marks an entity to be written on the next flush.
+     */
+    public synchronized void entity(Snowflake entity) {
+        if (entity == null || id(entity.id) == 0) return;
+        this.index.remove(id(entity.id));
+        this.dirty.put(entity.id, new Queued(entity, System.currentTimeMillis()));
+    }
+
+    /**
+     * Queues the member to be written on the next flush.
+     * This is called while the member cache is locked, so it must not touch the file.
+     */
+    public void member(MemberCache.Entry entry) {
+        this.queue(new Key(entry.guild, entry.id), entry);
+    }
+
+    public void removeMember(long guild, long user) {
+        this.queue(new Key(guild, user), null);
+    }
+
+    public void removeGuild(long guild) {
+        synchronized (pending) {
+            this.pending.keySet().removeIf(key -> key.guild == guild);
+            this.pending.put(new Key(guild, 0), null);
+        }
+    }
+
+    private void queue(Key key, MemberCache.Entry entry) {
+        synchronized (pending) {
+            this.pending.remove(key); // so it is written after anything queued before it
+            this.pending.put(key, entry);
+        }
+    }
+
+    /**
+     * Writes the entities and members that have changed to the file, and compacts it if most of it is out of date.
+     * Entities that are still waiting for their data are kept for the next flush, up to {@link #READY_WAIT}.
+     */
+    public void flush() {
+        synchronized (io) {
+            if (channel == null) return;
+            final List<Map.Entry<Key, MemberCache.Entry>> changes;
+            synchronized (pending) {
+                changes = new ArrayList<>(pending.entrySet());
+                this.pending.clear();
+            }
+            final List<Snowflake> entities = new ArrayList<>();
+            synchronized (this) {
+                final long now = System.currentTimeMillis();
+                final Iterator<Queued> iterator = dirty.values().iterator();
+                while (iterator.hasNext()) {
+                    final Queued queued = iterator.next();
+                    if (queued.entity.ready()) entities.add(queued.entity);
+                    else if (now - queued.since < READY_WAIT) continue; // it may be waiting for a request
+                    iterator.remove();
+                }
+            }
+            for (final Map.Entry<Key, MemberCache.Entry> change : changes) {
+                final Key key = change.getKey();
+                final MemberCache.Entry entry = change.getValue();
+                if (entry != null) this.append(this.encode(entry));
+                else if (key.user == 0)
+                    this.append(ByteBuffer.allocate(RECORD + 8).put(REMOVE_GUILD).putInt(8).putLong(key.guild));
+                else this.append(ByteBuffer.allocate(RECORD + 16).put(REMOVE_MEMBER).putInt(16)
+                        .putLong(key.guild).putLong(key.user));
+            }
+            final Map<String, Long> written = new LinkedHashMap<>();
+            for (final Snowflake entity : entities) {
+                final byte[] json, name = bytes(entity.getClass().getName());
+                try {
+                    json = bytes(Json.toJson(entity));
+                } catch (Throwable ex) {
+                    continue; // not everything can be written, but it can always be requested again
+                }
+                if (json == null) continue;
+                final int length = 8 + 2 + name.length + json.length;
+                written.put(entity.id, this.append(ByteBuffer.allocate(RECORD + length).put(ENTITY)
+                    .putInt(length).putLong(id(entity.id)).putShort((short) name.length).put(name).put(json)));
+            }
+            this.write(); // so the records are in the file before they can be read
+            synchronized (this) {
+                for (final Map.Entry<String, Long> entry : written.entrySet())
+                    if (!dirty.containsKey(entry.getKey())) this.index.put(id(entry.getKey()), entry.getValue());
+            }
+            if (!this.isStale()) return;
+            try {
+                this.compact();
+            } catch (IOException ex) {
+                Bot.handle(ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (io) {
+            if (channel == null) return;
+            this.flush();
+            synchronized (this) {
+                try {
+                    this.channel.force(false);
+                    this.channel.close();
+                } catch (IOException ex) {
+                    Bot.handle(ex);
+                }
+                this.channel = null;
+            }
+        }
+    }
+
+    /**
+     * @return the position of the record in the file
+     */
+    private long append(ByteBuffer record) {
+        final long position = end;
+        record.flip();
+        this.end += record.remaining();
+        this.records++;
+        if (record.remaining() > buffer.remaining()) this.write();
+        if (record.remaining() > buffer.remaining()) this.write(record);
+        else this.buffer.put(record);
+        return position;
+    }
+
+    private void write() {
+        this.buffer.flip();
+        this.write(buffer);
+        this.buffer.clear();
+    }
+
+    private void write(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) this.channel.write(data);
+        } catch (IOException ex) {
+            Bot.handle(ex);
+        }
+    }
+
+    private ByteBuffer encode(MemberCache.Entry entry) {
+        final User user = entry.user;
+        final byte[] username, global, discriminator, avatar, nick = bytes(entry.nick), face = bytes(entry.avatar);
+        synchronized (user) {
+            username = bytes(user.username);
+            global = bytes(user.global_name);
+            discriminator = bytes(user.discriminator);
+            avatar = bytes(user.avatar);
+        }
+        final int length = 8 + 8 + size(username) + size(global) + size(discriminator) + size(avatar) + 1
+            + 2 + entry.roles.length * 8 + 8 * 3 + size(nick) + size(face) + 1;
+        final ByteBuffer record = ByteBuffer.allocate(RECORD + length).put(MEMBER).putInt(length);
+        record.putLong(entry.guild).putLong(entry.id);
+        put(record, username);
+        put(record, global);
+        put(record, discriminator);
+        put(record, avatar);
+        record.put((byte) (user.bot ? 1 : 0));
+        record.putShort((short) entry.roles.length);
+        for (final long role : entry.roles) record.putLong(role);
+        record.putLong(entry.joined).putLong(entry.premium).putLong(entry.timeout);
+        put(record, nick);
+        put(record, face);
+        record.put((byte) ((entry.pending ? 1 : 0) | (entry.deaf ? 2 : 0) | (entry.mute ? 4 : 0)));
+        return record;
+    }
+
+    private void restore(MemberCache members, ByteBuffer payload) {
+        final String guild = Long.toString(payload.getLong());
+        final User user = new User();
+        user.id = Long.toString(payload.getLong());
+        user.username = get(payload);
+        user.global_name = get(payload);
+        user.discriminator = get(payload);
+        user.avatar = get(payload);
+        user.bot = payload.get() != 0;
+        final Member member = new Member();
+        member.user = user;
+        member.guild_id = guild;
+        final ArrayList<String> roles = new ArrayList<>();
+        for (int i = payload.getShort(); i > 0; i--) roles.add(Long.toString(payload.getLong()));
+        member.roles = roles.toArray(new String[0]);
+        member.joined_at = timestamp(payload.getLong());
+        member.premium_since = timestamp(payload.getLong());
+        member.communication_disabled_until = timestamp(payload.getLong());
+        member.nick = get(payload);
+        member.avatar = get(payload);
+        final byte flags = payload.get();
+        member.pending = (flags & 1) != 0;
+        member.deaf = (flags & 2) != 0;
+        member.mute = (flags & 4) != 0;
+        members.restore(guild, member);
+    }
+
+    /**
+     * An entity waiting to be written, and when it was queued.
+     */
+    protected record Queued(Snowflake entity, long since) {
+    }
+
+    /**
+     * A queued member change. The whole guild is meant when the user is zero.
+     */
+    protected record Key(long guild, long user) {
+    }
+
+}
@@ -0,0 +1,71 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.DiscordAPI;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.Webhook;
+import mx.kenzie.eris.error.DiscordException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares the messages for one channel between several of its webhooks, for feeds that post more than
+ * one webhook (or the bot) is allowed to.
+ * <p>
+ * Each webhook has its own rate limit, so messages go to each webhook in turn,
+ * passing over any that Discord has said have nothing left until their limit resets.
+ * If they are all used up, the one that resets soonest is used.
+ */
+public class WebhookPool {
+
+    protected final DiscordAPI api;
+    protected final Webhook[] webhooks;
+    protected final AtomicInteger next = new AtomicInteger();
+
+    public WebhookPool(DiscordAPI api, Collection<Webhook> webhooks) {
+        this.api = api;
+        this.webhooks = webhooks.toArray(new Webhook[0]);
+        if (this.webhooks.length == 0) throw new DiscordException("A webhook pool needs at least one webhook.");
+        for (final Webhook webhook : this.webhooks) {
+            if (webhook.token == null) throw new DiscordException("The webhook " + webhook.id + " has no token.");
+            if (webhook.api == null) webhook.api = api;
+        }
+    }
+
+    public Message execute(Message message) {
+        return this.execute(message, null, true);
+    }
+
+    public <IThread> Message execute(Message message, @Nullable IThread thread, boolean wait) {
+        return api.executeWebhook(this.pick(), message, thread, wait);
+    }
+
+    /**
+     * @return the next webhook with requests left, or the one that will have some first
+     */
+    protected Webhook pick() {
+        final int start = Math.floorMod(next.getAndIncrement(), webhooks.length);
+        Webhook soonest = null;
+        long reset = Long.MAX_VALUE;
+        for (int i = 0; i < webhooks.length; i++) {
+            final Webhook webhook = webhooks[(start + i) % webhooks.length];
+            final RateLimits.Bucket bucket = this.bucket(webhook);
+            if (bucket == null || bucket.available() > 0) return webhook;
+            if (bucket.resetsIn() < reset) {
+                reset = bucket.resetsIn();
+                soonest = webhook;
+            }
+        }
+        return soonest;
+    }
+
+    protected @Nullable RateLimits.Bucket bucket(Webhook webhook) {
+        return api.getRateLimits().get("POST", "/webhooks/" + webhook.id + "/" + webhook.token);
+    }
+
+    public int size() {
+        return webhooks.length;
+    }
+
+}
@@ -0,0 +1,126 @@
+package mx.kenzie.eris.utility;
+
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.grammar.Grammar;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Map;
+
+/**
+ * Writes objects as JSON into the output, without building a string of the whole thing first.
+ * Payloads are read into a map by the same rules as {@link mx.kenzie.argo.Json} (using their grammar),
+ * so this gives the same result as {@code Json.toJson}. Only the whole object is read, not a projection of its type.
+ */
+public class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Marshaller GRAMMAR = new Marshaller();
+
+    protected final Appendable out;
+
+    public JsonWriter(Appendable out) {
+        this.out = out;
+    }
+
+    public static String toJson(Object value) {
+        final StringBuilder builder = new StringBuilder(128);
+        new JsonWriter(builder).write(value);
+        return builder.toString();
+    }
+
+    public JsonWriter write(Object value) {
+        try {
+            this.value(value);
+        } catch (IOException ex) {
+            throw new DiscordException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the contents of a JSON string (without the quotes), escaping whatever needs it.
+     */
+    public JsonWriter writeEscaped(CharSequence text) {
+        try {
+            this.escape(text);
+        } catch (IOException ex) {
+            throw new DiscordException(ex);
+        }
+        return this;
+    }
+
+    protected void value(Object value) throws IOException {
+        if (value == null) this.out.append("null");
+        else if (value instanceof CharSequence || value instanceof Character || value instanceof Enum<?>)
+            this.string(value.toString());
+        else if (value instanceof Boolean || value instanceof Number) this.out.append(value.toString());
+        else if (value instanceof Map<?, ?> map) this.object(map);
+        else if (value instanceof Iterable<?> iterable) {
+            this.out.append('[');
+            boolean first = true;
+            for (final Object element : iterable) {
+                if (!first) this.out.append(',');
+                first = false;
+                this.value(element);
+            }
+            this.out.append(']');
+        } else if (value.getClass().isArray()) {
+            this.out.append('[');
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                if (i > 0) this.out.append(',');
+                this.value(Array.get(value, i));
+            }
+            this.out.append(']');
+        } else this.object(GRAMMAR.marshal(value));
+    }
+
+    protected void object(Map<?, ?> map) throws IOException {
+        this.out.append('{');
+        boolean first = true;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) this.out.append(',');
+            first = false;
+            this.string(String.valueOf(entry.getKey()));
+            this.out.append(':');
+            this.value(entry.getValue());
+        }
+        this.out.append('}');
+    }
+
+    protected void string(String text) throws IOException {
+        this.out.append('"');
+        this.escape(text);
+        this.out.append('"');
+    }
+
+    protected void escape(CharSequence text) throws IOException {
+        int start = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            if (i > start) this.out.append(text, start, i); // copy the plain run in one go
+            start = i + 1;
+            switch (c) {
+                case '"' -> this.out.append("\\\"");
+                case '\\' -> this.out.append("\\\\");
+                case '\n' -> this.out.append("\\n");
+                case '\r' -> this.out.append("\\r");
+                case '\t' -> this.out.append("\\t");
+                default -> this.out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        if (start < length) this.out.append(text, start, length);
+    }
+
+    private static class Marshaller extends Grammar {
+
+        @Override
+        protected Map<String, Object> marshal(Object object) {
+            return super.marshal(object);
+        }
+
+    }
+
+}
@@ -8,38 +8,98 @@ import mx.kenzie.eris.api.event.Interaction;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Holds the listeners waiting for component interactions (see {@link Question}).
+ * <p>
+ * Each question's expiry is scheduled on a timing wheel, so questions are removed (and anything waiting
+ * on their component is released) at their deadline, whether or not they are ever looked up.
+ * Answering a question (that only takes one answer) takes it off the wheel.
+ */
 public class ResponseManager {
 
+    public static int WHEEL_SLOTS = 512;
+    public static long WHEEL_TICK = 100;
+
     protected final Bot bot;
     protected final DiscordAPI api;
     protected final Map<String, Question> responses;
+    protected final TimerWheel<String> wheel;
+    protected final Map<String, TimerWheel<String>.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final AtomicLong answered = new AtomicLong(), expired = new AtomicLong();
 
     public ResponseManager(Bot bot, DiscordAPI api) {
         this.bot = bot;
         this.api = api;
         this.responses = new ConcurrentHashMap<>();
-        this.bot.scheduler().schedule(this::clean, 60, TimeUnit.SECONDS);
+        this.wheel = new TimerWheel<>(WHEEL_SLOTS, WHEEL_TICK, this::expire);
+        this.bot.scheduler().scheduleAtFixedRate(() -> wheel.advance(System.currentTimeMillis()),
+            WHEEL_TICK, WHEEL_TICK, TimeUnit.MILLISECONDS);
     }
 
-    protected void clean() {
-        final long now = System.currentTimeMillis();
-        this.responses.values().removeIf(question -> question.expiry() < now);
+    /**
+     * A question asked again under the same id has a later expiry, so it survives the earlier deadline.
+     */
+    protected void expire(String id) {
+        final Question question = responses.get(id);
+        if (question == null || !question.hasExpired()) return;
+        if (!responses.remove(id, question)) return;
+        this.timeouts.remove(id);
+        this.expired.incrementAndGet();
+        if (question.component() != null) question.component().expire();
     }
 
     public boolean consume(Interaction interaction) throws Throwable {
+        return this.consume(interaction, null);
+    }
+
+    /**
+     * @param claimed run (if there is a question for this interaction) just before its listener
+     */
+    public boolean consume(Interaction interaction, Runnable claimed) throws Throwable {
         if (interaction.data == null) return false;
         final String id = interaction.data.custom_id;
         if (id == null) return false;
         final Question question = responses.get(id);
         if (question == null || question.hasExpired()) return false;
-        if (!question.allowMultipleResponses()) responses.remove(id);
+        if (!question.allowMultipleResponses() && responses.remove(id, question)) this.cancel(id);
+        this.answered.incrementAndGet();
+        if (claimed != null) claimed.run();
         question.listener().on(interaction);
         return true;
     }
 
     public void ask(String id, Question question) {
         this.responses.put(id, question);
+        final TimerWheel<String>.Timeout previous = timeouts.put(id, wheel.schedule(id, question.expiry()));
+        if (previous != null) previous.cancel();
+    }
+
+    private void cancel(String id) {
+        final TimerWheel<String>.Timeout timeout = timeouts.remove(id);
+        if (timeout != null) timeout.cancel();
+    }
+
+    /**
+     * The number of questions that are still waiting for an answer.
+     */
+    public int getWaiting() {
+        return responses.size();
+    }
+
+    /**
+     * The number of questions that expired without being answered.
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /**
+     * The number of answers received.
+     */
+    public long getAnswered() {
+        return answered.get();
     }
 
 }
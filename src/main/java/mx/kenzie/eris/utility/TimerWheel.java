@@ -0,0 +1,121 @@
+package mx.kenzie.eris.utility;
+
+import mx.kenzie.eris.Bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel: deadlines are dropped into one of a fixed number of slots (by tick),
+ * and each tick only looks at its own slot. Scheduling and cancelling are O(1).
+ * <p>
+ * Deadlines are only as precise as the tick, and are never run early.
+ * The wheel does not keep time itself: {@link #advance(long)} should be called every tick.
+ */
+@SuppressWarnings("unchecked")
+public class TimerWheel<Type> {
+
+    protected final Timeout[] slots;
+    protected final Consumer<? super Type> expiry;
+    protected final long start, tick;
+    private final int mask;
+    private long current;
+    private int size;
+
+    public TimerWheel(int slots, long tick, Consumer<? super Type> expiry) {
+        final int length = Integer.highestOneBit(Math.max(2, slots) * 2 - 1);
+        this.slots = (Timeout[]) new TimerWheel.Timeout[length];
+        this.mask = length - 1;
+        this.tick = Math.max(1, tick);
+        this.expiry = expiry;
+        this.start = System.currentTimeMillis();
+    }
+
+    /**
+     * Schedules a value to expire at (or just after) the given time.
+     */
+    public synchronized Timeout schedule(Type value, long deadline) {
+        final long target = Math.max((deadline - start + tick - 1) / tick, current + 1);
+        final Timeout timeout = new Timeout(value, target);
+        final int slot = (int) (target & mask);
+        timeout.next = slots[slot];
+        if (timeout.next != null) timeout.next.previous = timeout;
+        this.slots[slot] = timeout;
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * Runs every tick up to the given time, expiring what is due.
+     * Expired values are handed over after the wheel has been updated, outside its lock.
+     */
+    public void advance(long now) {
+        final List<Type> due = new ArrayList<>();
+        synchronized (this) {
+            final long target = (now - start) / tick;
+            while (current < target) {
+                this.current++;
+                Timeout timeout = slots[(int) (current & mask)];
+                while (timeout != null) {
+                    final Timeout next = timeout.next;
+                    if (timeout.target <= current) {
+                        this.unlink(timeout);
+                        due.add(timeout.value);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        for (final Type value : due) {
+            try {
+                this.expiry.accept(value);
+            } catch (Throwable ex) {
+                Bot.handle(ex);
+            }
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        final int slot = (int) (timeout.target & mask);
+        if (timeout.previous != null) timeout.previous.next = timeout.next;
+        else this.slots[slot] = timeout.next;
+        if (timeout.next != null) timeout.next.previous = timeout.previous;
+        timeout.previous = timeout.next = null;
+        timeout.done = true;
+        this.size--;
+    }
+
+    /**
+     * The number of values waiting to expire.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public final class Timeout {
+
+        protected final Type value;
+        protected final long target;
+        private Timeout previous, next;
+        private boolean done;
+
+        Timeout(Type value, long target) {
+            this.value = value;
+            this.target = target;
+        }
+
+        /**
+         * @return false if this had already expired or been cancelled
+         */
+        public boolean cancel() {
+            synchronized (TimerWheel.this) {
+                if (done) return false;
+                TimerWheel.this.unlink(this);
+                return true;
+            }
+        }
+
+    }
+
+}
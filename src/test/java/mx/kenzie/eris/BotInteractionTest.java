@@ -0,0 +1,113 @@
+package mx.kenzie.eris;
+
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.command.Command;
+import mx.kenzie.eris.api.entity.command.callback.Callback;
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.magic.InteractionType;
+import mx.kenzie.eris.api.magic.MessageFlags;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class BotInteractionTest {
+    
+    private static Recorder interaction(Bot bot, String name) {
+        final Recorder interaction = new Recorder();
+        interaction.api = bot.api;
+        interaction.type = InteractionType.APPLICATION_COMMAND;
+        interaction.data.type = 1;
+        interaction.data.name = name;
+        return interaction;
+    }
+    
+    @Test
+    public void unhandled() throws Throwable {
+        final Bot bot = new Bot();
+        bot.setAutoDefer(1);
+        final Recorder interaction = interaction(bot, "missing");
+        bot.interact(interaction);
+        java.lang.Thread.sleep(100);
+        assert !interaction.deferred : "An interaction nothing handled was deferred.";
+        assert interaction.calls.isEmpty() : interaction.calls;
+    }
+    
+    @Test
+    public void handled() throws Throwable {
+        final Bot bot = new Bot();
+        bot.setAutoDefer(1, true);
+        final CompletableFuture<Void> release = new CompletableFuture<>();
+        bot.getCommandRouter().register(Command.slash("slow", "slow"), interaction -> release.get(5, TimeUnit.SECONDS));
+        final Recorder interaction = interaction(bot, "slow");
+        final CompletableFuture<Void> handler = CompletableFuture.runAsync(() -> {
+            try {
+                bot.interact(interaction);
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        final long start = System.currentTimeMillis();
+        while (!interaction.deferred && System.currentTimeMillis() - start < 5000) java.lang.Thread.sleep(5);
+        release.complete(null);
+        handler.get(5, TimeUnit.SECONDS);
+        assert interaction.deferred : "A slow handler's interaction was not deferred.";
+        assert interaction.calls.equals(List.of("respond 5 " + MessageFlags.EPHEMERAL))
+            : "The deferral was not ephemeral: " + interaction.calls;
+    }
+    
+    @Test
+    public void ephemeralReply() {
+        final Bot bot = new Bot();
+        final Recorder interaction = interaction(bot, "command");
+        assert interaction.defer(false);
+        interaction.calls.clear();
+        interaction.reply("private");
+        assert interaction.calls.equals(List.of("delete", "send")) : "A private reply edited a public response: "
+            + interaction.calls;
+        final Recorder hidden = interaction(bot, "command");
+        hidden.defer(true);
+        hidden.calls.clear();
+        hidden.reply("private");
+        assert hidden.calls.equals(List.of("edit")) : hidden.calls;
+        final Recorder open = interaction(bot, "command");
+        open.defer(false);
+        open.calls.clear();
+        open.reply(new Message("public"));
+        open.reply(new Message("again"));
+        assert open.calls.equals(List.of("edit", "send")) : open.calls;
+    }
+    
+    static class Recorder extends Interaction {
+        
+        final List<String> calls = new ArrayList<>();
+        
+        @Override
+        public synchronized Callback respond(Callback callback, int type) {
+            final int flags = callback instanceof Message message ? message.flags : 0;
+            if (!deferred) this.calls.add("respond " + type + " " + flags);
+            return super.respond(callback, type);
+        }
+        
+        @Override
+        public Message sendMessage(Message message) {
+            this.calls.add("send");
+            return message;
+        }
+        
+        @Override
+        public void deleteOriginalResponse() {
+            this.calls.add("delete");
+        }
+        
+        @Override
+        public Message editOriginalResponse(Message message) {
+            this.calls.add("edit");
+            return message;
+        }
+        
+    }
+
+}
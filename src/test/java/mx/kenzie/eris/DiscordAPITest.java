@@ -0,0 +1,229 @@
+package mx.kenzie.eris;
+
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Guild;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.api.entity.Webhook;
+import mx.kenzie.eris.api.entity.WebhookMessage;
+import mx.kenzie.eris.api.entity.guild.BulkBan;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.RoleBatcher;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class DiscordAPITest {
+    
+    @Test
+    public void snapshotLookups() throws IOException {
+        final File file = Files.createTempFile("snapshot", ".bin").toFile();
+        try {
+            final DiscordAPI api = new Bot().api;
+            api.loadSnapshot(file);
+            final Channel channel = api.getChannel("123");
+            assert channel.id.equals("123");
+            assert api.getCache().get("123") == channel : "The channel was not cached.";
+            assert api.getUser("124").id.equals("124");
+            assert api.getGuild("125").id.equals("125");
+            assert api.getForumChannel("126").id.equals("126");
+            assert api.createDirectChannel("127") != null;
+            final Guild guild = api.getCache().getOrUse("128", new Guild());
+            assert guild.id.equals("128") : "The template was not given its id.";
+            final User user = api.getCache().getOrUse(null, new User());
+            assert user.id == null;
+            api.getSnapshot().close();
+        } finally {
+            file.delete();
+        }
+    }
+    
+    static class BanAPI extends DiscordAPI {
+    
+        final List<Object> requests = Collections.synchronizedList(new ArrayList<>());
+        volatile int limited;
+    
+        BanAPI() {
+            super(null, new Bot());
+        }
+    
+        @Override
+        @SuppressWarnings("unchecked")
+        public <Type> CompletableFuture<Type> requestJson(String type, String path, Object body, Type object,
+                                                          String... headers) {
+            this.requests.add(body);
+            final BulkBan response = (BulkBan) object;
+            final List<String> users = (List<String>) ((Map<String, Object>) body).get("user_ids");
+            if (limited > 0) {
+                this.limited--;
+                response.error(new RateLimitException("limited", 1, false));
+            } else if (users.contains("0")) response.error(new DiscordException("failed"));
+            else if (users.contains("-1")) response.banned_users = response.failed_users = null; // left out
+            else response.banned_users = users.toArray(new String[0]);
+            return CompletableFuture.completedFuture(object);
+        }
+    
+    }
+    
+    private static List<String> users(int from, int count) {
+        final List<String> users = new ArrayList<>();
+        for (int i = from; i < from + count; i++) users.add(Integer.toString(i));
+        return users;
+    }
+    
+    @Test
+    public void bulkBan() {
+        final BanAPI api = new BanAPI();
+        api.limited = 2;
+        final BulkBan result = api.bulkBan("1", users(1, BulkBan.MAX_USERS + 5), 60, null);
+        result.await();
+        assert result.successful() : "Rate limited requests were not sent again.";
+        assert result.banned_users.length == BulkBan.MAX_USERS + 5 && result.failed_users.length == 0;
+        assert api.requests.size() == 4;
+    }
+    
+    @Test
+    public void bulkBanErrors() {
+        final BanAPI api = new BanAPI();
+        final BulkBan result = api.bulkBan("1", users(0, BulkBan.MAX_USERS + 5), 0, null);
+        result.await();
+        assert result.error() != null : "A failed request did not give the result its error.";
+        assert result.failed_users.length == BulkBan.MAX_USERS && result.banned_users.length == 5;
+        final BanAPI limited = new BanAPI();
+        limited.limited = BulkBan.RETRIES + 1;
+        final BulkBan retried = limited.bulkBan("1", users(1, 1), 0, null);
+        retried.await();
+        assert retried.error() instanceof RateLimitException : "Rate limited requests were retried forever.";
+        assert limited.requests.size() == BulkBan.RETRIES + 1;
+        final BulkBan empty = api.bulkBan("1", List.of("-1"), 0, null);
+        empty.await();
+        assert empty.successful() && empty.size() == 0 : "A response without its lists was not read as empty.";
+        for (final int seconds : new int[] {-1, BulkBan.MAX_DELETE_SECONDS + 1}) {
+            try {
+                api.bulkBan("1", users(1, 1), seconds, null);
+                assert false : "Deleting messages from " + seconds + " seconds was allowed.";
+            } catch (DiscordException ignored) {
+            }
+        }
+    }
+    
+    static class WebhookAPI extends DiscordAPI {
+    
+        final List<String> requests = new ArrayList<>();
+        final List<Object> bodies = new ArrayList<>();
+    
+        WebhookAPI() {
+            super(null, new Bot());
+        }
+    
+        @Override
+        public <Type> CompletableFuture<Type> request(String type, String path, String body, Type object,
+                                                      String... headers) {
+            this.requests.add(type + " " + path);
+            this.bodies.add(body);
+            return CompletableFuture.completedFuture(object);
+        }
+    
+        @Override
+        public <Type> CompletableFuture<Type> requestJson(String type, String path, Object body, Type object,
+                                                          String... headers) {
+            this.requests.add(type + " " + path);
+            this.bodies.add(body);
+            return CompletableFuture.completedFuture(object);
+        }
+    
+    }
+    
+    @Test
+    public void executeWebhook() {
+        final WebhookAPI api = new WebhookAPI();
+        final Webhook webhook = new Webhook();
+        webhook.id = "1";
+        webhook.token = "secret";
+        final WebhookMessage message = new WebhookMessage("hello") {
+            @Override
+            public String toJson() {
+                return "{\"username\":\"Feed\",\"content\":\"hello\"}";
+            }
+        };
+        message.username = "Feed";
+        api.executeWebhook(webhook, message, "2", false).await();
+        assert api.requests.equals(List.of("POST /webhooks/1/secret?wait=false&thread_id=2")) : api.requests;
+        assert api.bodies.get(0).equals("{\"username\":\"Feed\",\"content\":\"hello\"}")
+            : "The webhook's fields were not sent: " + api.bodies.get(0);
+        try {
+            api.executeWebhook(new Webhook(), message, null, true);
+            assert false : "A webhook without a token was executed.";
+        } catch (DiscordException ignored) {
+        }
+    }
+    
+    @Test
+    public void createWebhook() {
+        final WebhookAPI api = new WebhookAPI();
+        final Channel channel = new Channel();
+        channel.id = "3";
+        channel.api = api;
+        final Webhook webhook = channel.createWebhook("Feed");
+        webhook.await();
+        assert api.requests.equals(List.of("POST /channels/3/webhooks")) : api.requests;
+        assert api.bodies.get(0).equals(Map.of("name", "Feed")) : "The name was not sent as a JSON body.";
+        assert webhook.api == api && webhook.successful();
+    }
+    
+    @Test
+    public void guildRoles() {
+        final List<String> changes = new ArrayList<>();
+        final Bot bot = new Bot();
+        final RoleBatcher batcher = new RoleBatcher(bot, bot.api) {
+            @Override
+            protected synchronized Member change(String guild, String user, String role, boolean add) {
+                changes.add((add ? "+" : "-") + guild + "/" + user + "/" + role);
+                return new Member();
+            }
+        };
+        final DiscordAPI api = new DiscordAPI(null, bot) {
+            @Override
+            public RoleBatcher getRoleBatcher() {
+                return batcher;
+            }
+        };
+        final Guild guild = new Guild();
+        guild.id = "1";
+        guild.api = api;
+        assert guild.addRole("10", "100").removeRole("10", "101") == guild : "The guild could not be chained.";
+        assert guild.addMemberRole("10", "102") != null && guild.removeMemberRole("10", "100") != null;
+        assert changes.equals(List.of("+1/10/100", "-1/10/101", "+1/10/102", "-1/10/100")) : changes;
+    }
+    
+    @Test
+    public void directChannels() {
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        final DiscordAPI api = new DiscordAPI(null, new Bot()) {
+            @Override
+            protected <Type> CompletableFuture<Type> request0(String type, String path, Object body, Type object,
+                                                              boolean defaultAuthorisation, String... headers) {
+                requests.add(type + " " + path);
+                if (object instanceof Channel channel) channel.id = "20";
+                return CompletableFuture.completedFuture(object);
+            }
+        };
+        api.getCache().setShouldCache(true);
+        final User user = api.getUser("10");
+        final Channel channel = api.openDirectChannel("10").join();
+        assert channel.id.equals("20") && channel.successful();
+        assert api.getUser("10") == user : "The user was replaced in the cache by their DM channel.";
+        assert api.getCache().get("20") == channel : "The channel was not cached under its own id.";
+        assert api.createDirectChannel("10") == channel : "The known channel was not taken from the cache.";
+        assert requests.equals(List.of("GET /users/10", "POST /users/@me/channels", "GET /users/10")) : requests;
+    }
+
+}
@@ -0,0 +1,79 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.api.entity.command.Command;
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.magic.OptionType;
+import org.junit.Test;
+
+public class CommandRouterTest {
+    
+    static Interaction interaction(String name, String guild, Interaction.Option... options) {
+        final Interaction interaction = new Interaction();
+        interaction.guild_id = guild;
+        interaction.data.type = 1;
+        interaction.data.name = name;
+        interaction.data.options = options.length == 0 ? null : options;
+        return interaction;
+    }
+    
+    static Interaction.Option option(String name, int type, Interaction.Option... options) {
+        final Interaction.Option option = new Interaction.Option();
+        option.name = name;
+        option.type = type;
+        option.options = options.length == 0 ? null : options;
+        return option;
+    }
+    
+    @Test
+    public void guilds() {
+        final CommandRouter router = new CommandRouter();
+        final Command global = Command.slash("test", "test"), local = Command.slash("test", "test");
+        local.guild_id = "1";
+        final CommandHandler first = interaction -> {}, second = interaction -> {};
+        router.register(global, first);
+        router.register(local, second);
+        assert router.find(interaction("test", "1")) == second : "The guild command was not preferred.";
+        assert router.find(interaction("test", "2")) == first : "The global command was not used elsewhere.";
+        assert router.find(interaction("test", null)) == first;
+        assert router.find(interaction("other", "1")) == null;
+        router.unregister(local);
+        assert router.find(interaction("test", "1")) == first;
+        final Interaction user = interaction("test", null);
+        user.data.type = 2;
+        assert router.find(user) == null : "A command of another type was found.";
+    }
+    
+    @Test
+    public void subcommands() {
+        final CommandRouter router = new CommandRouter();
+        final Command command = Command.slash("settings", "settings");
+        final CommandHandler root = interaction -> {}, group = interaction -> {}, reset = interaction -> {};
+        router.register(command, root);
+        router.register(command, "advanced", group);
+        router.register(command, "advanced reset", reset);
+        final Interaction.Option value = option("value", OptionType.STRING);
+        assert router.find(interaction("settings", null,
+            option("advanced", OptionType.SUB_COMMAND_GROUP, option("reset", OptionType.SUB_COMMAND, value)))) == reset;
+        assert router.find(interaction("settings", null,
+            option("advanced", OptionType.SUB_COMMAND_GROUP, option("show", OptionType.SUB_COMMAND)))) == group
+            : "The deepest handler was not used.";
+        assert router.find(interaction("settings", null, option("basic", OptionType.SUB_COMMAND))) == root;
+        assert router.find(interaction("settings", null, value)) == root;
+    }
+    
+    @Test
+    public void dispatch() {
+        final CommandRouter router = new CommandRouter();
+        final int[] runs = new int[1];
+        router.register(Command.slash("fail", "fail"), interaction -> {
+            runs[0]++;
+            throw new IllegalStateException("handler failure");
+        });
+        assert router.dispatch(interaction("fail", null)) : "A handler that threw was not counted.";
+        assert runs[0] == 1;
+        assert !router.dispatch(interaction("missing", null));
+        router.clear();
+        assert !router.dispatch(interaction("fail", null));
+    }
+
+}
@@ -0,0 +1,81 @@
+package mx.kenzie.eris.api.command;
+
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.error.DiscordException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+public class CustomIdTest {
+    
+    private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    public void state() {
+        final CustomId codec = new CustomId(SECRET);
+        final String id = codec.encode("vote", new CustomId.Writer().writeLong(-5).writeInt(300).writeBoolean(true)
+            .writeEnum(TimeUnit.SECONDS).writeString("option"));
+        assert id.startsWith("vote~") && id.length() <= CustomId.MAX_LENGTH;
+        assert CustomId.handler(id).equals("vote");
+        final CustomId.Reader reader = codec.decode(id);
+        assert reader != null : "A valid id was rejected.";
+        assert reader.handler.equals("vote");
+        assert reader.readLong() == -5 && reader.readInt() == 300 && reader.readBoolean();
+        assert reader.readEnum(TimeUnit.class) == TimeUnit.SECONDS;
+        assert reader.readString().equals("option");
+        assert !reader.hasMore();
+    }
+    
+    @Test
+    public void forgery() {
+        final CustomId codec = new CustomId(SECRET);
+        final String id = codec.encode("vote", new CustomId.Writer().writeInt(1));
+        assert new CustomId("other".getBytes(StandardCharsets.UTF_8)).decode(id) == null : "Another secret was accepted.";
+        assert codec.decode("admin" + id.substring(4)) == null : "The handler key could be changed.";
+        final char[] chars = id.toCharArray();
+        chars[6] = chars[6] == 'A' ? 'B' : 'A';
+        assert codec.decode(new String(chars)) == null : "Changed state was accepted.";
+        assert codec.decode("vote~") == null && codec.decode("vote~!!") == null && codec.decode("vote") == null;
+    }
+    
+    @Test
+    public void expiry() {
+        final CustomId codec = new CustomId(SECRET, 60000);
+        final long now = System.currentTimeMillis();
+        final String id = codec.encode("vote", null, now);
+        assert codec.decode(id, now + 30000) != null;
+        assert codec.decode(id, now + 120000) == null : "A stale id was accepted.";
+        assert codec.decode(codec.encode("vote", null, now + TimeUnit.HOURS.toMillis(1)), now) == null
+            : "An id from the future was accepted.";
+    }
+    
+    @Test
+    public void enums() {
+        final CustomId codec = new CustomId(SECRET);
+        final CustomId.Reader reader = codec.decode(codec.encode("vote", new CustomId.Writer().writeInt(99).writeInt(-1)));
+        for (int i = 0; i < 2; i++) {
+            try {
+                reader.readEnum(TimeUnit.class);
+                assert false : "An unknown ordinal was read.";
+            } catch (DiscordException ex) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void router() {
+        final ComponentRouter router = new ComponentRouter();
+        final int[] seen = new int[1];
+        router.register("count", (interaction, state) -> seen[0] = state.readInt());
+        final Interaction interaction = new Interaction();
+        interaction.data.custom_id = router.id("count", writer -> writer.writeInt(7));
+        assert router.dispatch(interaction) && seen[0] == 7;
+        router.setSecret(SECRET);
+        assert !router.dispatch(interaction) : "An id from the old secret was accepted.";
+        interaction.data.custom_id = "missing~AAAA";
+        assert !router.dispatch(interaction);
+    }
+
+}
@@ -0,0 +1,21 @@
+package mx.kenzie.eris.api.entity;
+
+import mx.kenzie.eris.api.entity.message.InteractionMessage;
+import mx.kenzie.eris.api.entity.message.UnsentMessage;
+import org.junit.Test;
+
+public class WebhookMessageTest {
+    
+    @Test
+    public void fields() throws NoSuchFieldException {
+        final WebhookMessage.Marshaller grammar = new WebhookMessage.Marshaller();
+        assert !grammar.shouldSkip(WebhookMessage.class.getField("username")) : "The webhook's fields were left out.";
+        assert !grammar.shouldSkip(WebhookMessage.class.getField("thread_name"));
+        assert !grammar.shouldSkip(InteractionMessage.class.getField("content"));
+        assert !grammar.shouldSkip(UnsentMessage.class.getField("message_reference"));
+        assert grammar.shouldSkip(Message.class.getField("channel_id")) : "A sent message's field was written.";
+        assert grammar.shouldSkip(Message.class.getField("author"));
+        assert grammar.shouldSkip(Message.class.getField("type"));
+    }
+
+}
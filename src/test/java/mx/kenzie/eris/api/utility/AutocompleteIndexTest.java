@@ -0,0 +1,65 @@
+package mx.kenzie.eris.api.utility;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AutocompleteIndexTest {
+    
+    private static List<String> names(List<AutocompleteIndex.Entry<Integer>> entries) {
+        final List<String> names = new ArrayList<>();
+        for (final AutocompleteIndex.Entry<Integer> entry : entries) names.add(entry.name());
+        return names;
+    }
+    
+    private static AutocompleteIndex<Integer> index() {
+        return new AutocompleteIndex<>(List.of(AutocompleteIndex.entry("Apple", 1, 5),
+            AutocompleteIndex.entry("apricot", 2, 20), AutocompleteIndex.entry("Banana", 3, 50),
+            AutocompleteIndex.entry("avocado", 4, 10), AutocompleteIndex.entry("ap", 5, 1)));
+    }
+    
+    @Test
+    public void search() {
+        final AutocompleteIndex<Integer> index = index();
+        assert index.size() == 5;
+        assert names(index.search("AP", 10)).equals(List.of("apricot", "Apple", "ap")) : "Prefix or weight was wrong.";
+        assert names(index.search("a", 2)).equals(List.of("apricot", "avocado")) : "The limit kept the wrong names.";
+        assert names(index.search("", 1)).equals(List.of("Banana"));
+        assert names(index.search(null, 10)).size() == 5;
+        assert index.search("z", 10).isEmpty();
+        assert index.search("a", 0).isEmpty();
+        assert index.choices("b").length == 1;
+    }
+    
+    @Test
+    public void large() {
+        final List<AutocompleteIndex.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) entries.add(AutocompleteIndex.entry("item" + i, i, i % 997));
+        final AutocompleteIndex<Integer> index = new AutocompleteIndex<>(entries);
+        final List<AutocompleteIndex.Entry<Integer>> results = index.search("item1", AutocompleteIndex.MAX_CHOICES);
+        assert results.size() == AutocompleteIndex.MAX_CHOICES;
+        long previous = Long.MAX_VALUE;
+        for (final AutocompleteIndex.Entry<Integer> entry : results) {
+            assert entry.name().startsWith("item1");
+            assert entry.weight() <= previous : "Results were not best first.";
+            previous = entry.weight();
+        }
+        assert results.get(0).weight() == 996;
+    }
+    
+    @Test
+    public void rebuild() throws Exception {
+        final AutocompleteIndex<Integer> index = index();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            index.rebuildAsync(List.of(AutocompleteIndex.entry("cherry", 1, 1)), executor).get();
+            assert names(index.search("", 10)).equals(List.of("cherry"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
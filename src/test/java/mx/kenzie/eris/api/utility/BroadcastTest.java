@@ -0,0 +1,104 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.RateLimits;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class BroadcastTest {
+    
+    static class Sender extends Broadcast {
+    
+        final List<String> opened = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<Channel>> opens = Collections.synchronizedList(new ArrayList<>());
+        final List<Broadcast.Result> results;
+        volatile boolean hold;
+        volatile int limited;
+        volatile RateLimits.Bucket bucket;
+    
+        Sender(List<Broadcast.Result> results) {
+            super(new Bot("token").getAPI(), new Message("hello"), results::add);
+            this.results = results;
+        }
+    
+        @Override
+        protected CompletableFuture<Channel> open(String user) {
+            this.opened.add(user);
+            if (user.equals("14")) throw new ClassCastException("broken");
+            final CompletableFuture<Channel> future = new CompletableFuture<>();
+            this.opens.add(future);
+            if (!hold) future.complete(channel(user));
+            return future;
+        }
+    
+        static Channel channel(String user) {
+            final Channel channel = new Channel();
+            channel.id = "dm" + user;
+            channel.finish();
+            return channel;
+        }
+    
+        @Override
+        protected CompletableFuture<?> request(String channel, Message message) {
+            if (channel.equals("dm13")) message.error(new DiscordException("blocked"));
+            else if (limited > 0) {
+                this.limited--;
+                message.error(new RateLimitException("limited", 1, false));
+            } else message.finish();
+            return CompletableFuture.completedFuture(message);
+        }
+    
+        @Override
+        protected RateLimits.Bucket bucket() {
+            return bucket;
+        }
+    
+    }
+    
+    @Test
+    public void results() {
+        final Sender broadcast = new Sender(Collections.synchronizedList(new ArrayList<>()));
+        broadcast.limited = 1;
+        broadcast.start(List.of("10", "11", "12", "13").iterator());
+        broadcast.await();
+        assert broadcast.getSent() == 3 && broadcast.getFailed() == 1;
+        assert broadcast.results.size() == 4 : "A user had no result.";
+        for (final Broadcast.Result result : broadcast.results)
+            assert result.successful() == !result.user_id().equals("13") : result;
+    }
+    
+    @Test
+    public void bucket() throws InterruptedException {
+        final Sender broadcast = new Sender(Collections.synchronizedList(new ArrayList<>()));
+        broadcast.hold = true;
+        broadcast.bucket = new RateLimits.Bucket("dm", 5, 2, System.currentTimeMillis() + 60000);
+        broadcast.start(List.of("10", "11", "12").iterator());
+        Thread.sleep(300);
+        assert broadcast.opened.size() == 2 : "More DMs were opened than the bucket had room for.";
+        broadcast.hold = false;
+        for (int i = 0; i < 2; i++) broadcast.opens.get(i).complete(Sender.channel(broadcast.opened.get(i)));
+        broadcast.await();
+        assert broadcast.opened.size() == 3 : "The last DM was not opened once the others were done.";
+        assert broadcast.getSent() == 3;
+    }
+    
+    @Test
+    public void thrown() {
+        final Sender broadcast = new Sender(Collections.synchronizedList(new ArrayList<>()));
+        broadcast.start(List.of("10", "14", "11").iterator());
+        broadcast.await();
+        assert broadcast.successful() : "A DM that could not be opened ended the broadcast.";
+        assert broadcast.getSent() == 2 && broadcast.getFailed() == 1;
+        assert broadcast.results.stream().filter(result -> !result.successful()).map(Broadcast.Result::user_id)
+            .toList().equals(List.of("14")) : broadcast.results;
+    }
+
+}
@@ -0,0 +1,130 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.guild.ModifyMember;
+import mx.kenzie.eris.error.RateLimitException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class MemberJobTest {
+    
+    static class Job extends MemberJob {
+    
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        final List<List<String>> written = Collections.synchronizedList(new ArrayList<>());
+        volatile int limited;
+    
+        Job(Path checkpoint) {
+            this(checkpoint, member -> {
+                if (member.user.id.equals("13")) return null;
+                return new ModifyMember();
+            });
+        }
+    
+        Job(Path checkpoint, Function<? super Member, ? extends ModifyMember> mutation) {
+            super(new Bot("token").getAPI(), "1", checkpoint, mutation, null);
+        }
+    
+        @Override
+        protected CompletableFuture<?> request(String user, ModifyMember modify, Member result) {
+            this.requests.add(user);
+            try {
+                this.written.add(Files.readAllLines(checkpoint));
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+            if (limited > 0) {
+                this.limited--;
+                result.error(new RateLimitException("limited", 1, false));
+            }
+            return CompletableFuture.completedFuture(result);
+        }
+    
+    }
+    
+    private static List<Member> members(String... users) {
+        final List<Member> members = new ArrayList<>();
+        for (final String user : users) {
+            final Member member = new Member();
+            member.user.id = user;
+            members.add(member);
+        }
+        return members;
+    }
+    
+    @Test
+    public void checkpoint() throws IOException {
+        final Path checkpoint = Files.createTempFile("job", ".txt");
+        try {
+            MemberJob.CONCURRENCY = 1;
+            final Job job = new Job(checkpoint);
+            job.start(members("10", "11", "12", "13").iterator());
+            job.await();
+            assert job.successful();
+            assert job.requests.equals(List.of("10", "11", "12")) : job.requests;
+            assert job.written.get(1).contains("10") : "The checkpoint was not written as members were done.";
+            assert job.written.get(2).contains("11");
+            assert job.getCompleted() == 3 && job.getSkipped() == 1;
+            assert Files.readAllLines(checkpoint).equals(List.of("10", "11", "12", "13"));
+            final Job resumed = new Job(checkpoint);
+            resumed.start(members("10", "11", "14").iterator());
+            resumed.await();
+            assert resumed.requests.equals(List.of("14")) : "Members in the checkpoint were done again.";
+            assert resumed.getResumed() == 2;
+        } finally {
+            MemberJob.CONCURRENCY = 8;
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+    
+    @Test
+    public void retries() throws IOException {
+        final Path checkpoint = Files.createTempFile("job", ".txt");
+        try {
+            final Job job = new Job(checkpoint);
+            job.limited = 2;
+            job.start(members("10").iterator());
+            job.await();
+            assert job.requests.equals(List.of("10", "10", "10")) : "A rate limited update was not sent again.";
+            assert job.getCompleted() == 1 && job.getFailed() == 0;
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+    
+    @Test
+    public void partial() throws IOException {
+        final Path checkpoint = Files.createTempFile("job", ".txt");
+        try {
+            final MemberJob roles = MemberJob.addRole(new Bot("token").getAPI(), "1", checkpoint, "100");
+            final List<Member> members = members("10", "11", "12");
+            members.get(0).roles = null;
+            members.get(1).roles = new String[] {"100"};
+            members.get(2).roles = new String[] {"101"};
+            final Job job = new Job(checkpoint, roles.mutation);
+            job.start(members.iterator());
+            job.await();
+            assert job.requests.equals(List.of("12")) : job.requests;
+            assert job.getSkipped() == 2;
+            assert Files.readAllLines(checkpoint).equals(List.of("11", "12"))
+                : "A partial member was checkpointed: " + Files.readAllLines(checkpoint);
+            final Job resumed = new Job(checkpoint, roles.mutation);
+            members.get(0).roles = new String[0];
+            resumed.start(members.iterator());
+            resumed.await();
+            assert resumed.requests.equals(List.of("10")) : "The partial member was not looked at again.";
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+}
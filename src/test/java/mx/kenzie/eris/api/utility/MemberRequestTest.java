@@ -0,0 +1,99 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.event.guild.member.IdentifyGuildMembers;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MemberRequestTest {
+    
+    private static IdentifyGuildMembers chunk(String nonce, int index, int count, String... users) {
+        final IdentifyGuildMembers chunk = new IdentifyGuildMembers();
+        chunk.guild_id = "1";
+        chunk.nonce = nonce;
+        chunk.chunk_index = index;
+        chunk.chunk_count = count;
+        chunk.members = new Member[users.length];
+        for (int i = 0; i < users.length; i++) {
+            chunk.members[i] = new Member();
+            chunk.members[i].user.id = users[i];
+        }
+        return chunk;
+    }
+    
+    @Test
+    public void chunks() {
+        final List<String> seen = new ArrayList<>();
+        final MemberRequest request = new MemberRequest(null, "1", "a", member -> seen.add(member.user.id));
+        assert request.progress()[1] == -1 : "Chunk count was known before any chunk arrived.";
+        assert !request.accept(chunk("a", 0, 2, "10", "11"));
+        assert !request.isComplete();
+        assert request.progress()[0] == 1 && request.progress()[1] == 2;
+        final IdentifyGuildMembers last = chunk("a", 1, 2, "12");
+        last.not_found = new String[] {"13"};
+        assert request.accept(last) : "The final chunk did not finish the request.";
+        assert request.isComplete();
+        assert seen.equals(List.of("10", "11", "12")) : seen;
+        assert Arrays.equals(request.getMissing(), new String[] {"13"});
+    }
+    
+    @Test
+    public void parts() {
+        final MemberRequest request = new MemberRequest(null, "1", "a", null);
+        request.expect("a-1");
+        assert request.accept(chunk("a", 0, 1, "10")) : "The first part was not finished.";
+        assert !request.isComplete() : "The request finished before its second part.";
+        assert request.progress()[1] == -1;
+        assert request.accept(chunk("a-1", 0, 1, "11"));
+        assert request.isComplete();
+        final List<String> seen = new ArrayList<>();
+        for (final Member member : request) seen.add(member.user.id);
+        assert seen.equals(List.of("10", "11")) : seen;
+    }
+    
+    @Test
+    public void buffer() {
+        final MemberRequest request = new MemberRequest(null, "1", "a", null);
+        final String[] users = new String[5000];
+        for (int i = 0; i < users.length; i++) users[i] = Integer.toString(i + 1);
+        request.accept(chunk("a", 0, 1, users)); // must not wait for a reader
+        int count = 0;
+        for (final Member ignored : request) count++;
+        assert count == users.length : count;
+    }
+    
+    @Test
+    public void bounded() throws InterruptedException {
+        final int buffer = MemberRequest.BUFFER;
+        final long wait = MemberRequest.BUFFER_WAIT;
+        MemberRequest.BUFFER = 10;
+        MemberRequest.BUFFER_WAIT = 50;
+        try {
+            final String[] users = new String[25];
+            for (int i = 0; i < users.length; i++) users[i] = Integer.toString(i + 1);
+            final MemberRequest read = new MemberRequest(null, "1", "a", null);
+            final List<String> seen = new ArrayList<>();
+            final Thread reader = new Thread(() -> {
+                for (final Member member : read) seen.add(member.user.id);
+            });
+            reader.start();
+            assert read.accept(chunk("a", 0, 1, users));
+            reader.join(5000);
+            assert read.successful() && seen.size() == users.length : "A reader could not keep up with a full buffer.";
+            final MemberRequest unread = new MemberRequest(null, "1", "b", null);
+            assert unread.accept(chunk("b", 0, 2, users)) : "A full buffer did not end the request.";
+            assert unread.isComplete() && unread.error() != null : "The dropped members were not reported.";
+            assert unread.accept(chunk("b", 1, 2, users));
+            int count = 0;
+            for (final Member ignored : unread) count++;
+            assert count == 10 : "The buffer held " + count + " members.";
+        } finally {
+            MemberRequest.BUFFER = buffer;
+            MemberRequest.BUFFER_WAIT = wait;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.message.Attachment;
+import mx.kenzie.eris.network.JsonBody;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+public class MessageTemplateTest {
+    
+    static String read(JsonBody body) {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        body.publisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+    
+            @Override
+            public void onNext(ByteBuffer item) {
+                final byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                stream.writeBytes(bytes);
+            }
+    
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+    
+            @Override
+            public void onComplete() {
+            }
+        });
+        return stream.toString(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void placeholders() {
+        final MessageTemplate template = new MessageTemplate("{\"content\":\"Hello {{ user }}, {{count}}!\"}");
+        assert Arrays.equals(template.getPlaceholders(), new String[] {"user", "count"})
+            : Arrays.toString(template.getPlaceholders());
+        assert template.parts.length == 3;
+        final MessageTemplate plain = new MessageTemplate("{\"content\":\"no {{ end\"}");
+        assert plain.getPlaceholders().length == 0 : "An unclosed placeholder was cut out.";
+        assert read(plain.render(Map.of())).equals("{\"content\":\"no {{ end\"}");
+    }
+    
+    @Test
+    public void literals() {
+        final String json = "{\"content\":\"```{{ a }} {{ not a key }}``` {{\",\"title\":\"}} {{user}}\"}";
+        final MessageTemplate template = new MessageTemplate(json.replace("{{ a }}", "\\\\{{ a }}"));
+        assert Arrays.equals(template.getPlaceholders(), new String[] {"user"})
+            : Arrays.toString(template.getPlaceholders());
+        assert read(template.render(Map.of("user", "b"))).equals(json.replace("{{user}}", "b"))
+            : "Text in braces was changed: " + read(template.render(Map.of("user", "b")));
+    }
+    
+    @Test
+    public void render() {
+        final MessageTemplate template = new MessageTemplate("{\"content\":\"Hello {{user}}, {{count}}!\"}");
+        final JsonBody body = template.render(Map.of("user", "a \"quoted\" é\n", "count", 3));
+        final String json = read(body);
+        assert json.equals("{\"content\":\"Hello a \\\"quoted\\\" é\\n, 3!\"}") : json;
+        assert body.length() == json.getBytes(StandardCharsets.UTF_8).length : "The length was not in bytes.";
+        assert read(template.render(Map.of())).equals("{\"content\":\"Hello , !\"}") : "A missing value was kept.";
+    }
+    
+    @Test
+    public void files() {
+        final Message message = new Message();
+        final Attachment attachment = new Attachment();
+        attachment.content = new byte[] {1, 2, 3};
+        message.attachments = new Attachment[] {attachment};
+        try {
+            new MessageTemplate(message);
+            assert false : "A message with files to upload was made into a template.";
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+}
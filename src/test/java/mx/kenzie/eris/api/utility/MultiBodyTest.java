@@ -0,0 +1,73 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.api.entity.message.Attachment;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class MultiBodyTest {
+    
+    private static File file(String content) throws Exception {
+        final File file = File.createTempFile("multi", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+    
+    private static String read(MultiBody body) throws Exception {
+        try (final InputStream stream = body.stream()) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    @Test
+    public void sections() throws Exception {
+        final File file = file("file content");
+        final MultiBody body = new MultiBody();
+        body.sectionMessage("{\"content\":\"hello\"}");
+        body.section("files[0]", file);
+        body.finish();
+        final String text = read(body);
+        assert text.contains("name=\"payload_json\"\nContent-Type: application/json\n\n{\"content\":\"hello\"}\n");
+        assert text.contains("filename=\"" + file.getName() + "\"\nContent-Type: text/plain; charset=UTF-8\n\n"
+            + "file content\n") : "The file's content was not after a blank line.";
+        assert text.endsWith("--boundary--\n");
+        assert body.length() == text.getBytes(StandardCharsets.UTF_8).length : "The length did not match the body.";
+        assert body.publisher().contentLength() == body.length();
+        assert read(body).equals(text) : "A body of files could not be read twice.";
+    }
+    
+    @Test
+    public void streams() throws Exception {
+        final Attachment attachment = new Attachment();
+        attachment.filename = "data.bin";
+        attachment.content_type = "application/octet-stream";
+        attachment.content = new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8));
+        final MultiBody body = new MultiBody();
+        body.section("files[0]", attachment);
+        body.finish();
+        assert body.length() == -1 : "A stream of unknown size had a length.";
+        assert body.publisher().contentLength() < 0;
+        final String text = read(body);
+        assert text.contains("Content-Type: application/octet-stream\n\nstreamed\n") : text;
+        body.close();
+    }
+    
+    @Test
+    public void attachmentText() throws Exception {
+        final Attachment attachment = new Attachment();
+        attachment.filename = "image.png";
+        attachment.content = "text";
+        final MultiBody body = new MultiBody();
+        body.section("files[0]", attachment);
+        body.finish();
+        final String text = read(body);
+        assert text.contains("Content-Type: image/png\n\ntext\r\n") : text;
+        assert body.length() == text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+}
@@ -0,0 +1,117 @@
+package mx.kenzie.eris.api.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.Lazy;
+import mx.kenzie.eris.api.entity.Snowflake;
+import mx.kenzie.eris.error.DiscordException;
+import mx.kenzie.eris.error.RateLimitException;
+import mx.kenzie.eris.network.RateLimits;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class PurgeTest {
+    
+    static class Recorder extends Purge {
+    
+        final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+        volatile String thread;
+        volatile int limited;
+        volatile RateLimits.Bucket bucket;
+    
+        Recorder() {
+            super(new Bot("token").getAPI(), "1", null);
+        }
+    
+        @Override
+        protected void run(Iterator<?> messages) {
+            this.thread = Thread.currentThread().getName();
+            super.run(messages);
+        }
+    
+        @Override
+        protected CompletableFuture<?> request(List<String> ids, Lazy result) {
+            this.requests.add(ids);
+            if (ids.contains(old(0).id)) result.error(new DiscordException("failed"));
+            else if (limited > 0) {
+                this.limited--;
+                result.error(new RateLimitException("limited", 1, false));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    
+        @Override
+        protected RateLimits.Bucket bucket(List<String> ids) {
+            return bucket;
+        }
+    
+    }
+    
+    private static Snowflake recent(int offset) {
+        return Snowflake.from(Instant.now().minusSeconds(60).plusMillis(offset));
+    }
+    
+    private static Snowflake old(int offset) {
+        return Snowflake.from(Instant.parse("2020-01-01T00:00:00Z").plusMillis(offset));
+    }
+    
+    @Test
+    public void batches() {
+        final List<Object> messages = new ArrayList<>();
+        for (int i = 0; i < Purge.BATCH_SIZE + 10; i++) messages.add(recent(i).id);
+        messages.add(old(0));
+        messages.add(old(1));
+        final Recorder purge = new Recorder();
+        purge.start(messages.iterator());
+        purge.await();
+        assert purge.requests.size() == 4 : purge.requests.size();
+        int bulk = 0, single = 0;
+        for (final List<String> request : purge.requests) {
+            if (request.size() == 1) single++;
+            else bulk += request.size();
+        }
+        assert bulk == Purge.BATCH_SIZE + 10 : "Recent messages were not deleted in bulk.";
+        assert single == 2 : "Old messages were deleted in bulk.";
+        assert purge.getDeleted() == Purge.BATCH_SIZE + 11 && purge.getFailed() == 1;
+        assert purge.getSeen() == messages.size();
+        assert !purge.thread.startsWith("ForkJoinPool") : "The purge ran on the common pool.";
+    }
+    
+    @Test
+    public void limits() {
+        final Recorder purge = new Recorder();
+        purge.limited = Purge.RETRIES;
+        purge.start(List.of(old(1), old(2), old(3)).iterator());
+        purge.await();
+        assert purge.getFailed() == 0 : "Rate limited deletes were counted as failed.";
+        assert purge.getDeleted() == 3 && purge.requests.size() == 3 + Purge.RETRIES;
+        final Recorder limited = new Recorder();
+        limited.limited = Purge.RETRIES + 1;
+        limited.start(List.of(old(1)).iterator());
+        limited.await();
+        assert limited.getFailed() == 1 : "A rate limited delete was retried forever.";
+    }
+    
+    @Test
+    public void bucket() {
+        final Recorder purge = new Recorder();
+        final long reset = System.currentTimeMillis() + 300;
+        purge.bucket = new RateLimits.Bucket("delete", 5, 0, reset);
+        purge.start(List.of(old(1)).iterator());
+        purge.await();
+        assert System.currentTimeMillis() >= reset - 20 : "The delete did not wait for the empty bucket.";
+        assert purge.getDeleted() == 1;
+    }
+    
+    @Test
+    public void age() {
+        assert Purge.MAX_AGE.compareTo(Duration.ofDays(14)) < 0 : "Bulk-delete would refuse the oldest messages.";
+    }
+
+}
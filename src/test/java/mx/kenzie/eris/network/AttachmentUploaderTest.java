@@ -0,0 +1,121 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.message.Attachment;
+import mx.kenzie.eris.error.DiscordException;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class AttachmentUploaderTest {
+    
+    static class Uploader extends AttachmentUploader {
+    
+        final List<Path> uploaded = new ArrayList<>();
+        Map<String, Object> request;
+        List<Map<String, Object>> response;
+    
+        Uploader() {
+            super(null, null);
+        }
+    
+        @Override
+        @SuppressWarnings("unchecked")
+        protected CompletableFuture<Map<String, Object>> requestUploads(String channel, Map<String, Object> body) {
+            this.request = body;
+            final List<Map<String, Object>> targets = new ArrayList<>();
+            for (final Map<String, Object> file : (List<Map<String, Object>>) body.get("files"))
+                targets.add(Map.of("id", file.get("id"), "upload_url", "https://upload/" + file.get("id"),
+                    "upload_filename", "uploaded/" + file.get("filename")));
+            return CompletableFuture.completedFuture(Map.of("attachments", response != null ? response : targets));
+        }
+    
+        @Override
+        protected CompletableFuture<Void> put(String url, Path path) {
+            this.uploaded.add(path);
+            return CompletableFuture.completedFuture(null);
+        }
+    
+    }
+    
+    private static Attachment attachment(String id, Object content) {
+        final Attachment attachment = new Attachment();
+        attachment.id = id;
+        attachment.content = content;
+        return attachment;
+    }
+    
+    @Test
+    public void copies() throws Exception {
+        final long threshold = AttachmentUploader.THRESHOLD;
+        final File big = File.createTempFile("big", ".bin"), small = File.createTempFile("small", ".bin");
+        try {
+            Files.write(big.toPath(), new byte[64]);
+            Files.write(small.toPath(), new byte[8]);
+            AttachmentUploader.THRESHOLD = 32;
+            final Attachment[] attachments = {attachment("0", big), attachment("1", small), attachment("2", "text")};
+            final Uploader uploader = new Uploader();
+            assert uploader.shouldUpload(attachments);
+            assert !uploader.shouldUpload(new Attachment[] {attachments[1]});
+            final Attachment[] result = uploader.upload("1", attachments).get();
+            assert uploader.uploaded.equals(List.of(big.toPath())) : "Only the big file should have been uploaded.";
+            assert result != attachments && result.length == 3;
+            assert result[0] != attachments[0] : "The uploaded attachment was not a copy.";
+            assert result[0].content == null && result[0].id.equals("0");
+            assert result[0].uploaded_filename.equals("uploaded/" + big.getName()) : result[0].uploaded_filename;
+            assert result[0].filename.equals(big.getName());
+            assert result[1] == attachments[1] && result[2] == attachments[2] : "Other attachments were replaced.";
+            assert attachments[0].content == big && attachments[0].filename == null
+                : "The caller's attachment changed.";
+            assert attachments[0].uploaded_filename == null;
+        } finally {
+            AttachmentUploader.THRESHOLD = threshold;
+            big.delete();
+            small.delete();
+        }
+    }
+    
+    @Test
+    public void nothingToUpload() throws Exception {
+        final Attachment[] attachments = {attachment("0", "text")};
+        final Uploader uploader = new Uploader();
+        final Attachment[] result = uploader.upload("1", attachments).get();
+        assert uploader.request == null : "Uploads were requested for nothing.";
+        assert Arrays.equals(result, attachments);
+    }
+    
+    @Test
+    public void badResponses() throws Exception {
+        final long threshold = AttachmentUploader.THRESHOLD;
+        final File big = File.createTempFile("big", ".bin");
+        try {
+            Files.write(big.toPath(), new byte[64]);
+            AttachmentUploader.THRESHOLD = 32;
+            final Attachment[] attachments = {attachment("0", big), attachment("1", big)};
+            final Map<String, Object> first = Map.of("id", 0, "upload_url", "https://upload/0", "upload_filename", "a");
+            final List<List<Map<String, Object>>> responses = List.of(
+                List.of(first, Map.of("id", 1, "upload_url", "https://upload/1")),
+                List.of(first, first),
+                List.of(first, Map.of("id", 5, "upload_url", "https://upload/5", "upload_filename", "b")),
+                List.of(first, Map.of("upload_url", "https://upload/1", "upload_filename", "b")));
+            for (final List<Map<String, Object>> response : responses) {
+                final Uploader uploader = new Uploader();
+                uploader.response = response;
+                try {
+                    uploader.upload("1", attachments).get();
+                    assert false : "A bad response was accepted: " + response;
+                } catch (ExecutionException ex) {
+                    assert ex.getCause() instanceof DiscordException : ex.getCause();
+                }
+            }
+        } finally {
+            AttachmentUploader.THRESHOLD = threshold;
+            big.delete();
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.error.DiscordException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class EditSchedulerTest {
+    
+    static class Scheduler extends EditScheduler {
+    
+        final List<CompletableFuture<Message>> requests = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+    
+        Scheduler() {
+            super(new Bot("token").getAPI());
+        }
+    
+        @Override
+        protected CompletableFuture<Message> request(String path, String body, Message result) {
+            final CompletableFuture<Message> request = new CompletableFuture<>();
+            this.paths.add(path);
+            this.requests.add(request);
+            return request;
+        }
+    
+    }
+    
+    private static Message message(String id) {
+        final Message message = new Message("edit");
+        message.id = id;
+        message.channel_id = "1";
+        return message;
+    }
+    
+    @Test
+    public void latestOnly() {
+        final Scheduler scheduler = new Scheduler();
+        final Message first = scheduler.edit(message("10"));
+        final Message second = scheduler.edit(message("10")), third = scheduler.edit(message("10"));
+        assert scheduler.requests.size() == 1 : "An edit was sent while another was in flight.";
+        assert scheduler.size() == 1;
+        scheduler.requests.get(0).complete(null);
+        assert first.ready() && first.successful();
+        assert !second.ready() && !third.ready() : "A replaced edit was finished by the earlier request.";
+        assert scheduler.requests.size() == 2 : "The edits made meanwhile were not sent together.";
+        scheduler.requests.get(1).complete(null);
+        assert second.ready() && third.ready() : "A replaced edit did not get the latest result.";
+        assert scheduler.size() == 0 : "The finished slot was kept.";
+    }
+    
+    @Test
+    public void separateMessages() {
+        final Scheduler scheduler = new Scheduler();
+        scheduler.edit(message("10"));
+        scheduler.edit(message("11"));
+        assert scheduler.requests.size() == 2 : "Edits to different messages waited for each other.";
+        assert scheduler.paths.equals(List.of("/channels/1/messages/10", "/channels/1/messages/11"));
+    }
+    
+    @Test
+    public void errors() {
+        final Scheduler scheduler = new Scheduler();
+        final Message first = scheduler.edit(message("10"));
+        scheduler.requests.get(0).completeExceptionally(new DiscordException("failed"));
+        assert first.ready() && first.error() != null : "A failed edit was not reported.";
+        final Message next = scheduler.edit(message("10"));
+        assert scheduler.requests.size() == 2 : "A failed edit blocked the next one.";
+        scheduler.requests.get(1).complete(null);
+        assert next.successful();
+    }
+
+}
@@ -0,0 +1,105 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.command.Command;
+import mx.kenzie.eris.api.event.Interaction;
+import mx.kenzie.eris.api.magic.InteractionType;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+public class InteractionServerTest {
+    
+    private static final KeyPair KEYS;
+    
+    static {
+        try {
+            KEYS = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    private static InteractionServer server(Bot bot) {
+        final byte[] encoded = KEYS.getPublic().getEncoded(); // the raw key is the end of the X.509 form
+        return new InteractionServer(bot, HexFormat.of().formatHex(Arrays.copyOfRange(encoded, encoded.length - 32,
+            encoded.length)));
+    }
+    
+    private static Deferring interaction(Bot bot) {
+        final Deferring interaction = new Deferring();
+        interaction.api = bot.getAPI();
+        interaction.type = InteractionType.APPLICATION_COMMAND;
+        interaction.data.type = 1;
+        interaction.data.name = "test";
+        return interaction;
+    }
+    
+    @Test
+    public void verify() throws Exception {
+        final InteractionServer server = server(new Bot("token"));
+        final byte[] body = "{\"type\":1}".getBytes(StandardCharsets.UTF_8);
+        final Signature signer = Signature.getInstance("Ed25519");
+        signer.initSign(KEYS.getPrivate());
+        signer.update("12345".getBytes(StandardCharsets.UTF_8));
+        signer.update(body);
+        final String signature = HexFormat.of().formatHex(signer.sign());
+        assert server.verify(signature, "12345", body) : "A valid signature was rejected.";
+        assert !server.verify(signature, "12346", body) : "A signature for another timestamp was accepted.";
+        assert !server.verify(signature, "12345", "{}".getBytes(StandardCharsets.UTF_8));
+        assert !server.verify(null, "12345", body) && !server.verify("zz", "12345", body);
+    }
+    
+    @Test
+    public void lateAnswer() throws Exception {
+        final Bot bot = new Bot("token");
+        final long deadline = InteractionServer.DEADLINE;
+        InteractionServer.DEADLINE = 1000;
+        try {
+            bot.getCommandRouter().register(Command.slash("test", "test"), interaction -> bot.executor.execute(() -> {
+                try {
+                    java.lang.Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                interaction.inline.complete("answer"); // as the first response would be
+            }));
+            final Deferring interaction = interaction(bot);
+            assert server(bot).respond(interaction).equals("answer") : "A late answer was not waited for.";
+            assert !interaction.deferred : "An interaction answered in time was deferred.";
+        } finally {
+            InteractionServer.DEADLINE = deadline;
+        }
+    }
+    
+    @Test
+    public void noAnswer() throws Exception {
+        final Bot bot = new Bot("token");
+        final long deadline = InteractionServer.DEADLINE;
+        InteractionServer.DEADLINE = 100;
+        try {
+            bot.getCommandRouter().register(Command.slash("test", "test"), interaction -> {});
+            final Deferring interaction = interaction(bot);
+            assert server(bot).respond(interaction).equals("deferred");
+            assert interaction.deferred : "An unanswered interaction was not deferred at the deadline.";
+        } finally {
+            InteractionServer.DEADLINE = deadline;
+        }
+    }
+    
+    static class Deferring extends Interaction {
+        
+        @Override
+        public synchronized boolean defer(boolean ephemeral) {
+            this.deferred = true;
+            this.inline.complete("deferred");
+            return true;
+        }
+        
+    }
+
+}
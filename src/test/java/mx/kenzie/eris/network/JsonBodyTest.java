@@ -0,0 +1,130 @@
+package mx.kenzie.eris.network;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+
+public class JsonBodyTest {
+    
+    static class Reader implements Flow.Subscriber<ByteBuffer> {
+    
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final long request;
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean complete;
+    
+        Reader(long request) {
+            this.request = request;
+        }
+    
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (request > 0) subscription.request(request);
+        }
+    
+        @Override
+        public void onNext(ByteBuffer item) {
+            final byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            this.stream.writeBytes(bytes);
+        }
+    
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+    
+        @Override
+        public void onComplete() {
+            this.complete = true;
+        }
+    
+        String text() {
+            return stream.toString(StandardCharsets.UTF_8);
+        }
+    
+    }
+    
+    @Test
+    public void encoding() {
+        final String text = "{\"a\":\"é € 😀\"}";
+        final JsonBody body = JsonBody.of(text);
+        final Reader reader = new Reader(Long.MAX_VALUE);
+        assert body.length() == text.getBytes(StandardCharsets.UTF_8).length;
+        body.publisher().subscribe(reader);
+        assert reader.complete;
+        assert reader.text().equals(text) : reader.text();
+        final JsonBody broken = new JsonBody().append('\uD83D').append('a');
+        final Reader second = new Reader(Long.MAX_VALUE);
+        broken.publisher().subscribe(second);
+        assert second.text().equals("?a") : "An unpaired surrogate was not replaced.";
+    }
+    
+    @Test
+    public void chunks() {
+        final byte[] bytes = new byte[JsonBody.CHUNK * 2 + 10];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) ('a' + i % 26);
+        final JsonBody body = new JsonBody().write(bytes);
+        assert body.buffers.size() == 3;
+        final Reader reader = new Reader(1);
+        body.publisher().subscribe(reader);
+        assert reader.stream.size() == JsonBody.CHUNK : "More was sent than was asked for.";
+        reader.subscription.request(1);
+        assert !reader.complete;
+        reader.subscription.request(1);
+        assert reader.complete : "The body did not finish with its last buffer.";
+        assert reader.stream.size() == bytes.length;
+    }
+    
+    @Test
+    public void releasedOnClose() {
+        final JsonBody body = JsonBody.of("{}");
+        final Reader reader = new Reader(Long.MAX_VALUE);
+        body.publisher().subscribe(reader);
+        assert reader.complete;
+        assert !body.buffers.isEmpty() : "The buffers were released before the client had answered.";
+        final Reader retry = new Reader(Long.MAX_VALUE);
+        body.publisher().subscribe(retry);
+        assert retry.text().equals("{}") : "The body could not be sent again before it was closed.";
+        body.close();
+        assert body.buffers.isEmpty() : "The buffers were not released once the body was closed.";
+        final Reader again = new Reader(Long.MAX_VALUE);
+        body.publisher().subscribe(again);
+        assert again.error instanceof IllegalStateException : "A released body was sent again.";
+    }
+    
+    @Test
+    public void heldWhileReading() {
+        final JsonBody body = JsonBody.of("{\"a\":1}");
+        final Reader reader = new Reader(0);
+        body.publisher().subscribe(reader);
+        body.close();
+        assert !body.buffers.isEmpty() : "The buffers were released while they were still being read.";
+        final ByteBuffer held = body.buffers.get(0);
+        final JsonBody other = JsonBody.of("{\"b\":2}");
+        assert other.buffers.get(0) != held : "A buffer that was being read was given to another body.";
+        reader.subscription.request(1);
+        assert reader.text().equals("{\"a\":1}") : reader.text();
+        assert body.buffers.isEmpty() : "The buffers were not released once reading had finished.";
+        reader.subscription.cancel();
+        other.close();
+    }
+    
+    @Test
+    public void releasedOnCancel() {
+        final JsonBody body = JsonBody.of("{}");
+        final Reader reader = new Reader(0);
+        body.publisher().subscribe(reader);
+        body.close();
+        reader.subscription.cancel();
+        assert body.buffers.isEmpty() : "The buffers were not released after cancelling.";
+        reader.subscription.cancel();
+        body.close();
+    }
+
+}
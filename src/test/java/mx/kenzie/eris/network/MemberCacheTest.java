@@ -0,0 +1,76 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.User;
+import org.junit.Test;
+
+public class MemberCacheTest {
+    
+    private static Member member(String user, String... roles) {
+        final Member member = new Member();
+        member.user.id = user;
+        member.user.username = "user" + user;
+        member.roles = roles;
+        member.joined_at = "2022-01-01T00:00:00Z";
+        return member;
+    }
+    
+    @Test
+    public void store() {
+        final MemberCache cache = new MemberCache(null);
+        cache.store("1", member("10", "100", "101"));
+        final MemberCache.Entry entry = cache.get("1", "10");
+        assert entry != null : "The member was not stored.";
+        assert entry.hasRole(100) && entry.hasRole(101) && !entry.hasRole(102);
+        final Member member = entry.toMember();
+        assert member.ready();
+        assert member.guild_id.equals("1");
+        assert member.roles.length == 2 && member.roles[0].equals("100");
+        assert member.joined_at.equals("2022-01-01T00:00:00Z") : member.joined_at;
+        assert cache.get("2", "10") == null;
+    }
+    
+    @Test
+    public void update() {
+        final MemberCache cache = new MemberCache(null);
+        cache.store("1", member("10", "100"));
+        final Member update = member("10");
+        update.roles = null;
+        update.joined_at = null;
+        update.nick = "nick";
+        cache.store("1", update);
+        final MemberCache.Entry entry = cache.get("1", "10");
+        assert entry.hasRole(100) : "An update without roles lost the member's roles.";
+        assert entry.joined != 0 : "An update without a join date lost it.";
+        assert "nick".equals(entry.nick);
+    }
+    
+    @Test
+    public void sharedUsers() {
+        final MemberCache cache = new MemberCache(null);
+        cache.store("1", member("10"));
+        cache.store("2", member("10"));
+        assert cache.get("1", "10").user == cache.get("2", "10").user : "The user was held twice.";
+        final Member renamed = member("10");
+        renamed.user.username = "renamed";
+        cache.store("2", renamed);
+        assert cache.get("1", "10").user.username.equals("renamed");
+        final User user = new User();
+        user.id = "10";
+        cache.remove("1", user);
+        assert cache.get("1", "10") == null;
+        assert cache.getUser(10) != null : "The user was released while still in a guild.";
+        cache.removeGuild("2");
+        assert cache.getUser(10) == null : "The user was kept after leaving every guild.";
+        assert cache.size(2) == 0;
+    }
+    
+    @Test
+    public void disabled() {
+        final MemberCache cache = new MemberCache(null);
+        cache.setShouldCache(false);
+        cache.store("1", member("10"));
+        assert cache.get("1", "10") == null;
+    }
+
+}
@@ -0,0 +1,138 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.Message;
+import mx.kenzie.eris.api.entity.User;
+import mx.kenzie.eris.api.entity.message.Attachment;
+import org.junit.Test;
+
+public class MessageCacheTest {
+    
+    static Message message(long channel, long id, String content) {
+        final Message message = new Message();
+        message.id = Long.toString(id);
+        message.channel_id = Long.toString(channel);
+        message.content = content;
+        message.timestamp = "2022-01-01T00:00:00Z";
+        message.author = new User();
+        message.author.id = "5";
+        message.author.username = "author";
+        return message;
+    }
+    
+    @Test
+    public void store() {
+        final MessageCache cache = new MessageCache(null, 10, 1 << 20);
+        final Message message = message(1, 100, "hello");
+        final Attachment attachment = new Attachment();
+        attachment.url = "https://cdn.discordapp.com/attachments/1/2/file.png?ex=1&is=2";
+        message.attachments = new Attachment[] {attachment};
+        cache.store(message, "9");
+        final MessageCache.Entry entry = cache.get(1, 100);
+        assert entry != null : "The message was not stored.";
+        assert entry.content.equals("hello");
+        assert entry.guild == 9 && entry.author == 5;
+        final Message restored = entry.toMessage();
+        assert restored.content.equals("hello");
+        assert restored.author.username.equals("author");
+        assert restored.timestamp.equals("2022-01-01T00:00:00Z");
+        assert restored.attachments != null && restored.attachments.length == 1 : "The attachments were lost.";
+        assert restored.attachments[0].url.equals(attachment.url);
+        assert restored.attachments[0].filename.equals("file.png") : restored.attachments[0].filename;
+    }
+    
+    @Test
+    public void edit() {
+        final MessageCache cache = new MessageCache(null, 10, 1 << 20);
+        cache.store(message(1, 100, "before"), "9");
+        final Message edit = new Message();
+        edit.id = "100";
+        edit.channel_id = "1";
+        edit.content = "after";
+        final MessageCache.Entry previous = cache.edit(edit, null);
+        assert previous != null && previous.content.equals("before") : "The previous version was not given.";
+        final MessageCache.Entry entry = cache.get(1, 100);
+        assert entry.content.equals("after");
+        assert entry.author == 5 && entry.guild == 9 : "Fields missing from the edit were not kept.";
+        final Message unknown = new Message();
+        unknown.id = "101";
+        unknown.channel_id = "1";
+        assert cache.edit(unknown, null) == null : "An edit to an unknown message was stored.";
+        assert cache.get(1, 101) == null;
+    }
+    
+    @Test
+    public void remove() {
+        final MessageCache cache = new MessageCache(null, 10, 1 << 20);
+        cache.store(message(1, 100, "gone"), null);
+        final MessageCache.Entry removed = cache.remove("1", "100");
+        assert removed != null && removed.content.equals("gone");
+        assert cache.get(1, 100) == null;
+        assert cache.count() == 0 && cache.size() == 0;
+    }
+    
+    @Test
+    public void limits() {
+        final MessageCache cache = new MessageCache(null, 3, 1 << 20);
+        for (int i = 1; i <= 5; i++) cache.store(message(1, i, "message"), null);
+        assert cache.count() == 3;
+        assert cache.get(1, 1) == null && cache.get(1, 2) == null : "The oldest messages were not dropped.";
+        assert cache.get(1, 5) != null;
+        final long each = cache.size() / 3;
+        final MessageCache small = new MessageCache(null, 100, each * 2);
+        small.store(message(1, 1, "message"), null);
+        small.store(message(2, 2, "message"), null);
+        small.store(message(1, 3, "message"), null);
+        assert small.count() == 2 : "The budget was exceeded.";
+        assert small.get(1, 1) == null : "The oldest message was not the one dropped.";
+    }
+    
+    @Test
+    public void coverage() {
+        final MessageCache cache = new MessageCache(null, 10, 1 << 20);
+        cache.connect(false);
+        for (int i = 10; i <= 14; i++) cache.store(message(1, i, "message"), null);
+        final MessageCache.Window after = cache.query(1, 0, 0, 14, 50);
+        assert after.complete() && after.messages().length == 0 : "A covered empty window was not complete.";
+        final MessageCache.Window recent = cache.query(1, 0, 0, 0, 3);
+        assert recent.complete() && recent.messages().length == 3;
+        assert recent.messages()[0].id == 14 : "The window was not newest-first.";
+        final MessageCache.Window all = cache.query(1, 0, 0, 0, 50);
+        assert !all.complete() && all.messages().length == 5 : "A window reaching past the floor was complete.";
+        assert cache.query(1, 0, 0, 5, 50).messages().length == 0 : "A window before the floor was answered.";
+        cache.suspend();
+        assert !cache.query(1, 0, 0, 14, 50).complete() : "A disconnected cache answered a query.";
+    }
+    
+    @Test
+    public void evictionCoverage() {
+        final MessageCache cache = new MessageCache(null, 3, 1 << 20);
+        cache.connect(false);
+        for (int i = 10; i <= 14; i++) cache.store(message(1, i, "message"), null);
+        final MessageCache.Window window = cache.query(1, 0, 0, 10, 50);
+        assert !window.complete() : "A window including evicted messages was complete.";
+        assert cache.query(1, 0, 0, 11, 50).complete();
+        final long each = cache.size() / 3;
+        final MessageCache small = new MessageCache(null, 100, each * 3);
+        small.connect(false);
+        small.store(message(1, 10, "message"), null);
+        small.store(message(1, 11, "message"), null);
+        small.store(message(2, 20, "message"), null);
+        small.store(message(1, 12, "message"), null); // the budget drops 10
+        assert !small.query(1, 0, 0, 0, 50).complete();
+        assert !small.query(1, 0, 0, 9, 50).complete() : "The budget left a hole in a covered window.";
+        final MessageCache.Window rest = small.query(1, 0, 0, 10, 50);
+        assert rest.complete() && rest.messages().length == 2;
+    }
+    
+    @Test
+    public void deletionCoverage() {
+        final MessageCache cache = new MessageCache(null, 10, 1 << 20);
+        cache.connect(false);
+        for (int i = 10; i <= 12; i++) cache.store(message(1, i, "message"), null);
+        cache.remove(1, 10);
+        final MessageCache.Window window = cache.query(1, 0, 0, 9, 50);
+        assert window.complete() : "Deleting a message shrank the covered window.";
+        assert window.messages().length == 2;
+    }
+
+}
@@ -0,0 +1,64 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Embed;
+import mx.kenzie.eris.api.entity.Message;
+import org.junit.Test;
+
+public class MessageCoalescerTest {
+    
+    @Test
+    public void merging() {
+        final MessageCoalescer coalescer = new MessageCoalescer(new Bot("token"), 60000);
+        assert coalescer.canMerge(new Message("hello"));
+        assert coalescer.canMerge(new Message(new Embed().title("title")));
+        assert !coalescer.canMerge(new Message()) : "An empty message was merged.";
+        final Message reply = new Message("reply");
+        reply.message_reference = new Message.Reference();
+        assert !coalescer.canMerge(reply) : "A reply was merged.";
+        final Message flagged = new Message("flagged");
+        flagged.flags = 4;
+        assert !coalescer.canMerge(flagged);
+        assert !coalescer.canMerge(new Message("a".repeat(MessageCoalescer.MAX_CONTENT + 1)));
+    }
+    
+    @Test
+    public void batches() {
+        final MessageCoalescer coalescer = new MessageCoalescer(new Bot("token"), 60000);
+        final Message first = coalescer.send("1", new Message("first"));
+        final Message second = coalescer.send("1", new Message("second"));
+        coalescer.send("2", new Message("other"));
+        final MessageCoalescer.Batch batch = coalescer.batches.get("1");
+        assert batch != null && batch.messages.size() == 2;
+        assert batch.content.toString().equals("first\nsecond") : batch.content;
+        assert !first.ready() && !second.ready() : "A waiting message was finished.";
+        final MessageCoalescer.Batch full = new MessageCoalescer.Batch();
+        full.add(new Message("a".repeat(MessageCoalescer.MAX_CONTENT - 1)));
+        assert !full.fits(new Message("b")) : "The separator was not counted.";
+        final Message alone = new Message("reply");
+        alone.message_reference = new Message.Reference();
+        coalescer.send("1", alone);
+        assert !coalescer.batches.containsKey("1") : "A message that could not be merged did not send the batch first.";
+        assert coalescer.batches.containsKey("2");
+        coalescer.flush();
+        assert coalescer.batches.isEmpty();
+    }
+    
+    @Test
+    public void optIn() {
+        final Bot bot = new Bot("token");
+        final Channel channel = new Channel();
+        channel.id = "1";
+        channel.api = bot.getAPI();
+        assert bot.getAPI().getCoalescer() == null : "Coalescing was on by default.";
+        bot.setMessageCoalescing(60000);
+        final MessageCoalescer coalescer = bot.getCoalescer();
+        channel.send(new Message("hello"));
+        assert coalescer.batches.containsKey("1") : "Channel#send did not use the coalescer.";
+        bot.setMessageCoalescing(0);
+        assert bot.getCoalescer() == null;
+        assert coalescer.batches.isEmpty() : "Turning coalescing off did not send what was waiting.";
+    }
+
+}
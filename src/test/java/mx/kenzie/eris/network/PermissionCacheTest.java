@@ -0,0 +1,123 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.Channel;
+import mx.kenzie.eris.api.entity.Guild;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.Role;
+import mx.kenzie.eris.api.entity.guild.CreateChannel.PermissionOverwrite;
+import mx.kenzie.eris.api.magic.ChannelType;
+import mx.kenzie.eris.api.magic.Permission;
+import org.junit.Test;
+
+public class PermissionCacheTest {
+    
+    private static final long GUILD = 1, OWNER = 2, USER = 3, ROLE = 4, TEXT = 5, THREAD = 6, HIDDEN = 7;
+    private static final long BASIC = Permission.VIEW_CHANNEL | Permission.SEND_MESSAGES | Permission.EMBED_LINKS
+        | Permission.ATTACH_FILES | Permission.MENTION_EVERYONE | Permission.SEND_TTS_MESSAGES
+        | Permission.READ_MESSAGE_HISTORY | Permission.SEND_MESSAGES_IN_THREADS | Permission.KICK_MEMBERS;
+    
+    private static Role role(long id, long permissions, int position) {
+        final Role role = new Role();
+        role.id = Long.toString(id);
+        role.permissions = Long.toString(permissions);
+        role.position = position;
+        return role;
+    }
+    
+    private static Channel channel(long id, int type, PermissionOverwrite... overwrites) {
+        final Channel channel = new Channel();
+        channel.id = Long.toString(id);
+        channel.type = type;
+        channel.permission_overwrites = overwrites;
+        return channel;
+    }
+    
+    private static PermissionCache cache(long roles) {
+        final MemberCache members = new MemberCache(null);
+        final Member member = new Member();
+        member.user.id = Long.toString(USER);
+        member.roles = roles == 0 ? new String[0] : new String[] {Long.toString(roles)};
+        members.store(Long.toString(GUILD), member);
+        final PermissionCache cache = new PermissionCache(members);
+        final Guild guild = new Guild();
+        guild.id = Long.toString(GUILD);
+        guild.owner_id = Long.toString(OWNER);
+        guild.roles = new Role[] {role(GUILD, BASIC, 0), role(ROLE, Permission.MANAGE_MESSAGES, 1)};
+        cache.storeGuild(guild);
+        final Channel thread = channel(THREAD, ChannelType.GUILD_PUBLIC_THREAD);
+        thread.parent_id = Long.toString(TEXT);
+        cache.storeChannels(Long.toString(GUILD),
+            channel(TEXT, ChannelType.GUILD_TEXT, PermissionOverwrite.ofRole(GUILD, 0, Permission.SEND_MESSAGES)),
+            thread,
+            channel(HIDDEN, ChannelType.GUILD_TEXT, PermissionOverwrite.ofRole(GUILD, 0, Permission.VIEW_CHANNEL)));
+        return cache;
+    }
+    
+    @Test
+    public void base() {
+        final PermissionCache cache = cache(ROLE);
+        final long permissions = cache.getPermissions(GUILD, USER);
+        assert (permissions & Permission.MANAGE_MESSAGES) != 0 : "The role's permissions were not added.";
+        assert (permissions & Permission.EMBED_LINKS) != 0;
+        assert cache.getPermissions(GUILD, OWNER) == 0 : "An uncached member had permissions.";
+    }
+    
+    @Test
+    public void withoutView() {
+        final PermissionCache cache = cache(ROLE);
+        assert cache.getPermissions(GUILD, USER, HIDDEN) == 0 : "A member had permissions in a channel they cannot see.";
+        assert !cache.hasPermission(GUILD, USER, HIDDEN, Permission.KICK_MEMBERS);
+        assert !cache.hasPermission(GUILD, USER, HIDDEN, Permission.MANAGE_MESSAGES);
+    }
+    
+    @Test
+    public void withoutSend() {
+        final PermissionCache cache = cache(0);
+        final long permissions = cache.getPermissions(GUILD, USER, TEXT);
+        assert (permissions & Permission.VIEW_CHANNEL) != 0;
+        assert (permissions & Permission.SEND_MESSAGES) == 0;
+        assert (permissions & Permission.EMBED_LINKS) == 0 : "Embed links was kept without send messages.";
+        assert (permissions & Permission.ATTACH_FILES) == 0 : "Attach files was kept without send messages.";
+        assert (permissions & Permission.MENTION_EVERYONE) == 0 : "Mention everyone was kept without send messages.";
+        assert (permissions & Permission.SEND_TTS_MESSAGES) == 0 : "Tts was kept without send messages.";
+        assert (permissions & Permission.READ_MESSAGE_HISTORY) != 0 : "An unrelated permission was removed.";
+    }
+    
+    @Test
+    public void threads() {
+        final PermissionCache cache = cache(0);
+        final long permissions = cache.getPermissions(GUILD, USER, THREAD);
+        assert (permissions & Permission.SEND_MESSAGES) == 0 : "The thread did not use its parent's overwrites.";
+        assert (permissions & Permission.ATTACH_FILES) != 0 : "Sending in threads did not keep attach files.";
+    }
+    
+    @Test
+    public void administrator() {
+        final PermissionCache cache = cache(0);
+        cache.storeRole(Long.toString(GUILD), role(ROLE, Permission.ADMINISTRATOR, 1));
+        final Member member = new Member();
+        member.user.id = Long.toString(USER);
+        member.roles = new String[] {Long.toString(ROLE)};
+        cache.members.store(Long.toString(GUILD), member);
+        assert cache.getPermissions(GUILD, USER, HIDDEN) == -1L : "Administrators were held back by overwrites.";
+    }
+    
+    @Test
+    public void memo() {
+        final PermissionCache cache = cache(0);
+        assert (cache.getPermissions(GUILD, USER, TEXT) & Permission.SEND_MESSAGES) == 0;
+        cache.storeChannels(Long.toString(GUILD), channel(TEXT, ChannelType.GUILD_TEXT));
+        assert (cache.getPermissions(GUILD, USER, TEXT) & Permission.SEND_MESSAGES) != 0 : "A stale result was used.";
+        assert (cache.getPermissions(GUILD, USER, THREAD) & Permission.SEND_MESSAGES) != 0
+            : "The thread kept its parent's old overwrites.";
+    }
+    
+    @Test
+    public void moderation() {
+        final PermissionCache cache = cache(ROLE);
+        assert cache.canModerate(GUILD, OWNER, USER) : "The owner could not moderate.";
+        assert !cache.canModerate(GUILD, USER, OWNER) : "The owner could be moderated.";
+        assert !cache.canModerate(GUILD, USER, USER);
+    }
+
+}
@@ -0,0 +1,95 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.error.RateLimitException;
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+
+public class RateLimitsTest {
+    
+    record Response(HttpRequest request, int statusCode, HttpHeaders headers) implements HttpResponse<Void> {
+    
+        static Response of(String method, String path, int status, String... headers) {
+            final Map<String, List<String>> map = new HashMap<>();
+            for (int i = 0; i < headers.length; i += 2) map.put(headers[i], List.of(headers[i + 1]));
+            final HttpRequest request = HttpRequest.newBuilder(URI.create("https://discord.com/api/v10" + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+            return new Response(request, status, HttpHeaders.of(map, (name, value) -> true));
+        }
+    
+        @Override
+        public Optional<HttpResponse<Void>> previousResponse() {
+            return Optional.empty();
+        }
+    
+        @Override
+        public Void body() {
+            return null;
+        }
+    
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+    
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+    
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    
+    }
+    
+    @Test
+    public void routes() {
+        assert RateLimits.route("PATCH", "/guilds/1/members/2").equals("PATCH /guilds/1/members/{id}");
+        assert RateLimits.route("GET", "/api/v10/channels/3/messages/4?limit=5")
+            .equals("GET /channels/3/messages/{id}") : "The version or query was kept.";
+        assert RateLimits.route("POST", "/webhooks/6/token").equals("POST /webhooks/6/token");
+        assert RateLimits.route("GET", "/users/@me").equals("GET /users/@me");
+    }
+    
+    @Test
+    public void buckets() {
+        final RateLimits limits = new RateLimits();
+        assert limits.get("PATCH", "/guilds/1/members/2") == null : "A bucket was known before any request.";
+        limits.update(Response.of("PATCH", "/guilds/1/members/2", 200, "X-RateLimit-Bucket", "abc",
+            "X-RateLimit-Limit", "10", "X-RateLimit-Remaining", "3", "X-RateLimit-Reset-After", "2.5"));
+        final RateLimits.Bucket bucket = limits.get("PATCH", "/guilds/1/members/9");
+        assert bucket != null : "Another member in the same guild did not share the bucket.";
+        assert bucket.id().equals("abc") && bucket.limit() == 10 && bucket.remaining() == 3;
+        assert bucket.available() == 3;
+        assert bucket.resetsIn() > 2000 && bucket.resetsIn() <= 2500 : bucket.resetsIn();
+        assert limits.get("PATCH", "/guilds/2/members/2") == null : "Another guild shared the bucket.";
+        final RateLimits.Bucket reset = new RateLimits.Bucket("abc", 10, 0, System.currentTimeMillis() - 1);
+        assert reset.available() == 10 && reset.resetsIn() == 0 : "A reset bucket was still empty.";
+        limits.update(Response.of("GET", "/users/@me", 200));
+        assert limits.get("GET", "/users/@me") == null : "A response without a bucket was recorded.";
+    }
+    
+    @Test
+    public void limited() {
+        final Map<String, Object> body = new HashMap<>();
+        body.put("message", "You are being rate limited.");
+        body.put("retry_after", 1.5);
+        body.put("global", true);
+        final Response response = Response.of("POST", "/channels/1/messages", 429);
+        final RateLimitException exception = RateLimits.exception(response, body);
+        assert exception.getRetryAfter() == 1500 && exception.isGlobal();
+        assert exception.getMessage().contains("rate limited");
+        final RateLimitException header = RateLimits.exception(Response.of("POST", "/channels/1/messages", 429,
+            "Retry-After", "3"), new HashMap<>());
+        assert header.getRetryAfter() == 3000 && !header.isGlobal() : "The Retry-After header was not used.";
+    }
+
+}
@@ -0,0 +1,104 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.guild.ModifyMember;
+import mx.kenzie.eris.api.magic.Intents;
+import mx.kenzie.eris.error.DiscordException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class RoleBatcherTest {
+    
+    static class Batcher extends RoleBatcher {
+    
+        final List<String> requests = new ArrayList<>();
+        final List<Object> bodies = new ArrayList<>();
+        boolean fail, empty;
+    
+        Batcher(Bot bot) {
+            super(bot, bot.getAPI());
+        }
+    
+        @Override
+        protected CompletableFuture<?> request(String method, String path, Object body, Member result) {
+            this.requests.add(method + " " + path);
+            this.bodies.add(body);
+            if (fail) result.error(new DiscordException("failed"));
+            else if (!empty && !method.equals("PUT") && !method.equals("DELETE")) {
+                result.user.id = "10";
+                if (body instanceof ModifyMember modify) result.roles = modify.roles;
+            }
+            return CompletableFuture.completedFuture(result);
+        }
+    
+    }
+    
+    private static Member member(String... roles) {
+        final Member member = new Member();
+        member.user.id = "10";
+        member.roles = roles;
+        return member;
+    }
+    
+    @Test
+    public void batched() {
+        final Bot bot = new Bot("token", Intents.GUILD_MEMBERS);
+        bot.getAPI().getMemberCache().store("1", member("100", "101"));
+        final Batcher batcher = new Batcher(bot);
+        final Member first = batcher.add("1", "10", "102"), second = batcher.remove("1", "10", "100");
+        assert first == second : "Changes in the same window had different results.";
+        batcher.flush();
+        assert batcher.requests.equals(List.of("PATCH /guilds/1/members/10")) : batcher.requests;
+        final ModifyMember modify = (ModifyMember) batcher.bodies.get(0);
+        assert Arrays.equals(modify.roles, new String[] {"101", "102"}) : Arrays.toString(modify.roles);
+        assert first.successful() && first.guild_id.equals("1");
+        assert bot.getAPI().getLocalMember("1", "10").hasRole(102) : "The cache did not get the new roles.";
+    }
+    
+    @Test
+    public void withoutIntent() {
+        final Bot bot = new Bot("token");
+        bot.getAPI().getMemberCache().store("1", member("100"));
+        final Batcher batcher = new Batcher(bot);
+        final Member result = batcher.add("1", "10", "102");
+        batcher.remove("1", "10", "100");
+        batcher.flush();
+        assert batcher.requests.equals(List.of("PUT /guilds/1/members/10/roles/102",
+            "DELETE /guilds/1/members/10/roles/100", "GET /guilds/1/members/10")) : batcher.requests;
+        assert result.successful();
+    }
+    
+    @Test
+    public void restored() {
+        final Bot bot = new Bot("token", Intents.GUILD_MEMBERS);
+        bot.getAPI().getMemberCache().restore("1", member("100"));
+        final Batcher batcher = new Batcher(bot);
+        batcher.add("1", "10", "102");
+        batcher.flush();
+        assert batcher.requests.get(0).equals("PUT /guilds/1/members/10/roles/102")
+            : "Roles restored from a snapshot were trusted.";
+    }
+    
+    @Test
+    public void errors() {
+        final Bot bot = new Bot("token");
+        final Batcher batcher = new Batcher(bot);
+        batcher.fail = true;
+        final Member failed = batcher.add("1", "10", "102");
+        batcher.remove("1", "10", "100");
+        batcher.flush();
+        assert batcher.requests.size() == 1 : "Changes were sent after one failed.";
+        assert failed.ready() && failed.error() != null : "The failure was not reported.";
+        final Batcher quiet = new Batcher(bot);
+        quiet.empty = true;
+        final Member empty = quiet.add("1", "10", "102");
+        quiet.flush();
+        assert empty.ready() && empty.error() != null : "An empty response finished as a member.";
+    }
+
+}
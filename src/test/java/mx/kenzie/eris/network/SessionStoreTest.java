@@ -0,0 +1,63 @@
+package mx.kenzie.eris.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SessionStoreTest {
+    
+    @Test
+    public void resume() throws IOException {
+        final Path path = Files.createTempFile("session", ".bin");
+        try {
+            final SessionStore store = new SessionStore(path);
+            store.update("session", "wss://resume");
+            store.update(42);
+            store.flush();
+            final SessionStore loaded = new SessionStore(path);
+            assert loaded.load() : "The session could not be resumed.";
+            assert loaded.getSession().equals("session");
+            assert loaded.getResumeURL().equals("wss://resume");
+            assert loaded.getSequence() == 42;
+            loaded.clear();
+            loaded.flush();
+            assert !new SessionStore(path).load() : "A cleared session was resumed.";
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void otherFiles() throws IOException {
+        assert SessionStore.MAGIC != Snapshot.MAGIC && SessionStore.MAGIC != DirectChannelStore.MAGIC;
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final Snapshot snapshot = new Snapshot(null, path);
+            snapshot.load(new MemberCache(null));
+            snapshot.close();
+            assert !new SessionStore(path).load() : "A snapshot was read as a session.";
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void expired() throws IOException {
+        final Path path = Files.createTempFile("session", ".bin");
+        final long age = SessionStore.MAX_AGE;
+        try {
+            final SessionStore store = new SessionStore(path);
+            store.update("session", null);
+            store.update(1);
+            store.flush();
+            SessionStore.MAX_AGE = 0;
+            assert !new SessionStore(path).load() : "An old session was resumed.";
+        } finally {
+            SessionStore.MAX_AGE = age;
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
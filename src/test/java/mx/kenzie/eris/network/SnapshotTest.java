@@ -0,0 +1,184 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.api.entity.Member;
+import mx.kenzie.eris.api.entity.User;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SnapshotTest {
+    
+    private static Member member(String user, String... roles) {
+        final Member member = new Member();
+        member.user.id = user;
+        member.user.username = "user" + user;
+        member.roles = roles;
+        member.nick = "nick" + user;
+        return member;
+    }
+    
+    private static MemberCache open(Path path) throws IOException {
+        final MemberCache members = new MemberCache(null);
+        final Snapshot snapshot = new Snapshot(null, path);
+        snapshot.load(members);
+        members.setSnapshot(snapshot);
+        return members;
+    }
+    
+    @Test
+    public void members() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final MemberCache before = open(path);
+            before.store("1", member("10", "100"), member("11"));
+            before.store("1", member("10", "101"));
+            before.store("2", member("12"));
+            final User user = new User();
+            user.id = "11";
+            before.remove("1", user);
+            before.snapshot.close();
+            final MemberCache after = open(path);
+            final MemberCache.Entry entry = after.get("1", "10");
+            assert entry != null : "The member was not restored.";
+            assert entry.restored;
+            assert entry.hasRole(101) && !entry.hasRole(100) : "An older record replaced a newer one.";
+            assert "nick10".equals(entry.nick) && entry.user.username.equals("user10");
+            assert after.get("1", "11") == null : "A removed member was restored.";
+            assert after.get("2", "12") != null;
+            after.removeGuild("2");
+            after.snapshot.close();
+            assert open(path).get("2", "12") == null : "A removed guild was restored.";
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void reconcile() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final MemberCache before = open(path);
+            before.store("1", member("10"), member("11"));
+            before.snapshot.close();
+            final MemberCache after = open(path);
+            after.store("1", member("10"));
+            assert !after.get("1", "10").restored : "A member seen again was still marked as restored.";
+            after.reconcile("1");
+            assert after.get("1", "10") != null;
+            assert after.get("1", "11") == null : "A member who was not seen again was kept.";
+            assert after.getUser(11) == null;
+            after.snapshot.close();
+            assert open(path).get("1", "11") == null : "A reconciled member came back.";
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void queued() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final MemberCache members = open(path);
+            final long empty = Files.size(path);
+            for (int i = 0; i < 100; i++) members.store("1", member("10", Integer.toString(100 + i)));
+            assert Files.size(path) == empty : "A member was written while the cache was locked.";
+            members.snapshot.flush();
+            final long once = Files.size(path);
+            assert once > empty;
+            members.store("1", member("10", "100"));
+            members.snapshot.flush();
+            assert Files.size(path) - once == once - empty : "A member was written more than once per flush.";
+            members.snapshot.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void truncated() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final MemberCache before = open(path);
+            before.store("1", member("10"));
+            before.snapshot.close();
+            final long whole = Files.size(path);
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.allocate(9).put((byte) 2).putInt(100).putInt(7).flip()); // cut short
+            }
+            final MemberCache after = open(path);
+            assert after.get("1", "10") != null;
+            assert Files.size(path) == whole : "The partial record was kept.";
+            after.snapshot.close();
+            Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+            assert open(path).getGuilds().length == 0 : "A file from another version was read.";
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void compaction() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final MemberCache members = open(path);
+            for (int i = 0; i < 3000; i++) {
+                members.store("1", member("10", Integer.toString(i)));
+                members.snapshot.flush();
+            }
+            members.snapshot.close();
+            final MemberCache after = open(path);
+            assert after.get("1", "10").hasRole(2999) : "The latest record was lost.";
+            assert Files.size(path) < 1024L * 100 : "The file was not compacted: " + Files.size(path);
+            after.snapshot.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void unready() throws IOException {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        final long wait = Snapshot.READY_WAIT;
+        try {
+            final Snapshot snapshot = open(path).snapshot;
+            final User user = new User();
+            user.id = "20";
+            snapshot.entity(user);
+            snapshot.flush();
+            assert snapshot.dirty.containsKey("20") : "An entity waiting for its data was dropped straight away.";
+            Snapshot.READY_WAIT = 0;
+            snapshot.flush();
+            assert snapshot.dirty.isEmpty() : "An entity that never became ready was kept.";
+            snapshot.close();
+        } finally {
+            Snapshot.READY_WAIT = wait;
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    @Test
+    public void unlocked() throws Exception {
+        final Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            final Snapshot snapshot = open(path).snapshot;
+            final User user = new User();
+            user.id = "20";
+            final Thread store = new Thread(() -> snapshot.entity(user));
+            synchronized (snapshot.io) { // as a flush would be while writing
+                store.start();
+                store.join(2000);
+                assert !store.isAlive() : "Queueing an entity waited for the file to be written.";
+                assert snapshot.read("21") == null;
+            }
+            snapshot.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
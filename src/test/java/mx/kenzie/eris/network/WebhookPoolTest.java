@@ -0,0 +1,77 @@
+package mx.kenzie.eris.network;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.entity.Webhook;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WebhookPoolTest {
+    
+    static class Pool extends WebhookPool {
+    
+        final Map<String, RateLimits.Bucket> buckets = new HashMap<>();
+    
+        Pool(String... ids) {
+            super(new Bot("token").getAPI(), webhooks(ids));
+        }
+    
+        static List<Webhook> webhooks(String... ids) {
+            final List<Webhook> webhooks = new ArrayList<>();
+            for (final String id : ids) {
+                final Webhook webhook = new Webhook();
+                webhook.id = id;
+                webhook.token = "secret";
+                webhooks.add(webhook);
+            }
+            return webhooks;
+        }
+    
+        String next() {
+            return this.pick().id;
+        }
+    
+        @Override
+        protected RateLimits.Bucket bucket(Webhook webhook) {
+            return buckets.get(webhook.id);
+        }
+    
+    }
+    
+    private static RateLimits.Bucket bucket(int remaining, long resetsIn) {
+        return new RateLimits.Bucket("hook", 5, remaining, System.currentTimeMillis() + resetsIn);
+    }
+    
+    @Test
+    public void order() {
+        final Pool pool = new Pool("1", "2", "3");
+        final List<String> picked = new ArrayList<>();
+        for (int i = 0; i < 4; i++) picked.add(pool.next());
+        assert picked.equals(List.of("1", "2", "3", "1")) : "The webhooks were not used in turn: " + picked;
+    }
+    
+    @Test
+    public void exhausted() {
+        final Pool pool = new Pool("1", "2", "3");
+        pool.buckets.put("2", bucket(0, 60000));
+        pool.buckets.put("3", bucket(2, 60000));
+        final List<String> picked = new ArrayList<>();
+        for (int i = 0; i < 3; i++) picked.add(pool.next());
+        assert picked.equals(List.of("1", "3", "3")) : "A webhook with nothing left was used: " + picked;
+    }
+    
+    @Test
+    public void soonest() {
+        final Pool pool = new Pool("1", "2", "3");
+        pool.buckets.put("1", bucket(0, 60000));
+        pool.buckets.put("2", bucket(0, 5000));
+        pool.buckets.put("3", bucket(0, 30000));
+        assert pool.next().equals("2") : "The webhook that resets first was not used.";
+        assert pool.next().equals("2");
+        assert pool.next().equals("2");
+    }
+
+}
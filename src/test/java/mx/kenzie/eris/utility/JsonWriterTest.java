@@ -0,0 +1,48 @@
+package mx.kenzie.eris.utility;
+
+import mx.kenzie.argo.Json;
+import mx.kenzie.eris.api.entity.Embed;
+import mx.kenzie.eris.api.entity.Message;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonWriterTest {
+    
+    @Test
+    public void escaping() {
+        final StringBuilder builder = new StringBuilder();
+        new JsonWriter(builder).writeEscaped("a\"b\\c\nd\te\u0001é");
+        assert builder.toString().equals("a\\\"b\\\\c\\nd\\te\\u0001é") : builder;
+    }
+    
+    @Test
+    public void structures() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "test");
+        map.put("count", 3);
+        map.put("flag", true);
+        map.put("none", null);
+        map.put("list", List.of(1, "two"));
+        map.put("array", new int[] {1, 2});
+        final String json = JsonWriter.toJson(map);
+        assert json.equals("{\"name\":\"test\",\"count\":3,\"flag\":true,\"none\":null,\"list\":[1,\"two\"],"
+            + "\"array\":[1,2]}") : json;
+    }
+    
+    @Test
+    public void payloads() {
+        final Message message = new Message("Hello \"there\"", new Embed().title("title").description("é\n"));
+        final Map<String, Object> expected, actual;
+        try (final Json json = new Json(Json.toJson(message))) {
+            expected = json.toMap();
+        }
+        try (final Json json = new Json(JsonWriter.toJson(message))) {
+            actual = json.toMap();
+        }
+        assert expected.equals(actual) : actual + " != " + expected;
+    }
+
+}
@@ -0,0 +1,49 @@
+package mx.kenzie.eris.utility;
+
+import mx.kenzie.eris.Bot;
+import mx.kenzie.eris.api.event.Interaction;
+import org.junit.Test;
+
+public class ResponseManagerTest {
+    
+    private static Interaction interaction(String id) {
+        final Interaction interaction = new Interaction();
+        interaction.data.custom_id = id;
+        return interaction;
+    }
+    
+    @Test
+    public void answer() throws Throwable {
+        final ResponseManager manager = new ResponseManager(new Bot("token"), null);
+        final int[] answers = new int[1];
+        manager.ask("a", new Question(System.currentTimeMillis() + 60000, false, null, interaction -> answers[0]++));
+        assert manager.wheel.size() == 1;
+        assert manager.consume(interaction("a"));
+        assert answers[0] == 1 && manager.getAnswered() == 1;
+        assert manager.getWaiting() == 0;
+        assert manager.wheel.size() == 0 : "An answered question was left on the wheel.";
+        assert !manager.consume(interaction("a")) : "A question was answered twice.";
+    }
+    
+    @Test
+    public void multiple() throws Throwable {
+        final ResponseManager manager = new ResponseManager(new Bot("token"), null);
+        manager.ask("a", new Question(System.currentTimeMillis() + 60000, true, null, interaction -> {}));
+        assert manager.consume(interaction("a")) && manager.consume(interaction("a"));
+        assert manager.getWaiting() == 1 && manager.wheel.size() == 1;
+    }
+    
+    @Test
+    public void expiry() throws Throwable {
+        final ResponseManager manager = new ResponseManager(new Bot("token"), null);
+        final long now = System.currentTimeMillis();
+        manager.ask("a", new Question(now - 1, false, null, interaction -> {}));
+        assert !manager.consume(interaction("a")) : "An expired question was answered.";
+        manager.wheel.advance(now + ResponseManager.WHEEL_TICK * 2);
+        assert manager.getWaiting() == 0 && manager.getExpired() == 1;
+        manager.ask("b", new Question(now + 60000, false, null, interaction -> {}));
+        manager.ask("b", new Question(now + 120000, false, null, interaction -> {}));
+        assert manager.wheel.size() == 1 : "Asking again left the earlier deadline on the wheel.";
+    }
+
+}
@@ -0,0 +1,66 @@
+package mx.kenzie.eris.utility;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimerWheelTest {
+    
+    @Test
+    public void expiry() {
+        final List<String> expired = new ArrayList<>();
+        final TimerWheel<String> wheel = new TimerWheel<>(8, 10, expired::add);
+        final long start = wheel.start;
+        wheel.schedule("a", start + 25);
+        wheel.schedule("b", start + 200); // more than one turn of the wheel
+        assert wheel.size() == 2;
+        wheel.advance(start + 20);
+        assert expired.isEmpty() : "A value expired early.";
+        wheel.advance(start + 30);
+        assert expired.equals(List.of("a")) : expired;
+        wheel.advance(start + 120);
+        assert expired.size() == 1 : "A value expired on an earlier turn of the wheel.";
+        wheel.advance(start + 200);
+        assert expired.equals(List.of("a", "b")) : expired;
+        assert wheel.size() == 0;
+    }
+    
+    @Test
+    public void cancel() {
+        final List<String> expired = new ArrayList<>();
+        final TimerWheel<String> wheel = new TimerWheel<>(8, 10, expired::add);
+        final TimerWheel<String>.Timeout first = wheel.schedule("a", wheel.start + 10),
+            second = wheel.schedule("b", wheel.start + 10);
+        assert first.cancel();
+        assert !first.cancel() : "A timeout was cancelled twice.";
+        assert wheel.size() == 1;
+        wheel.advance(wheel.start + 10);
+        assert expired.equals(List.of("b")) : expired;
+        assert !second.cancel() : "An expired timeout was cancelled.";
+    }
+    
+    @Test
+    public void past() {
+        final List<String> expired = new ArrayList<>();
+        final TimerWheel<String> wheel = new TimerWheel<>(8, 10, expired::add);
+        wheel.advance(wheel.start + 50);
+        wheel.schedule("late", wheel.start);
+        wheel.advance(wheel.start + 60);
+        assert expired.equals(List.of("late")) : "A deadline in the past was not run on the next tick.";
+    }
+    
+    @Test
+    public void failures() {
+        final List<String> expired = new ArrayList<>();
+        final TimerWheel<String> wheel = new TimerWheel<>(8, 10, value -> {
+            if (value.equals("a")) throw new IllegalStateException("expiry failure");
+            expired.add(value);
+        });
+        wheel.schedule("a", wheel.start + 10);
+        wheel.schedule("b", wheel.start + 10);
+        wheel.advance(wheel.start + 10);
+        assert expired.equals(List.of("b")) : "One failed expiry stopped the others.";
+    }
+
+}